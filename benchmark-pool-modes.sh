@@ -0,0 +1,126 @@
+#!/bin/bash
+
+# SlackShot Pool Mode Benchmark
+# Compares process-per-capture against context-per-capture:
+# starts the packaged application once per mode, runs the same screenshot
+# load against it and reports throughput and browser memory (RSS).
+
+JAR="target/slackshot-1.0.0.jar"
+PORT=3030
+BASE_URL="http://localhost:$PORT"
+AUTH_KEY="default-auth-key"
+POOL_SIZE=${POOL_SIZE:-8}
+CONCURRENT_REQUESTS=${CONCURRENT_REQUESTS:-8}
+TOTAL_REQUESTS=${TOTAL_REQUESTS:-40}
+RESULTS_FILE="pool_mode_results.csv"
+
+echo "🏁 SlackShot Pool Mode Benchmark"
+echo "================================"
+echo "   Pool size: $POOL_SIZE"
+echo "   Concurrent requests: $CONCURRENT_REQUESTS"
+echo "   Total requests: $TOTAL_REQUESTS"
+echo ""
+
+if [ ! -f "$JAR" ]; then
+    echo "📦 Building application..."
+    mvn -q -B clean package -DskipTests || exit 1
+fi
+
+echo "mode,requests,successful,elapsed_ms,captures_per_minute,peak_rss_mb,browser_processes,captures_per_minute_per_gb" > "$RESULTS_FILE"
+
+get_stat() {
+    local stats=$1
+    local field=$2
+    echo "$stats" | grep -o "\"$field\":[0-9]*" | cut -d: -f2
+}
+
+run_mode() {
+    local mode=$1
+
+    echo "🚀 Starting SlackShot in $mode mode..."
+    java -jar "$JAR" \
+        --server.port=$PORT \
+        --spring.datasource.url=jdbc:h2:mem:benchmark \
+        --webdriver.pool.mode=$mode \
+        --webdriver.pool.max-size=$POOL_SIZE \
+        --webdriver.pool.min-idle=$POOL_SIZE \
+        --webdriver.pool.health-check-interval-seconds=2 > "benchmark_$mode.log" 2>&1 &
+    local app_pid=$!
+
+    for ((i=0; i<120; i++)); do
+        if curl -s "$BASE_URL/api/webdriver/stats" -H "Authorization: $AUTH_KEY" > /dev/null 2>&1; then
+            break
+        fi
+        sleep 1
+    done
+
+    curl -s -X PUT "$BASE_URL/api/site" \
+        -H "Authorization: $AUTH_KEY" \
+        -H "Content-Type: application/json" \
+        -d '{
+            "name": "benchmark-site",
+            "url": "https://httpbin.org",
+            "loginType": "NONE"
+        }' > /dev/null
+
+    # Let the pool warm up so both modes start from min-idle drivers
+    sleep 15
+
+    local peak_rss=0
+    local browsers=0
+    local sampling_file="benchmark_${mode}_done"
+    rm -f "$sampling_file"
+    (
+        while [ ! -f "$sampling_file" ]; do
+            stats=$(curl -s "$BASE_URL/api/webdriver/stats" -H "Authorization: $AUTH_KEY")
+            echo "$(get_stat "$stats" totalRssMb) $(get_stat "$stats" browserProcesses)"
+            sleep 2
+        done
+    ) > "benchmark_${mode}_rss.txt" &
+    local sampler_pid=$!
+
+    local successful_file="benchmark_${mode}_status.txt"
+    rm -f "$successful_file"
+    local start_time=$(date +%s%3N)
+    for ((i=1; i<=TOTAL_REQUESTS; i++)); do
+        curl -s -o /dev/null -w "%{http_code}\n" -X POST "$BASE_URL/api/site/benchmark-site/screenshot" \
+            -H "Authorization: $AUTH_KEY" >> "$successful_file" &
+        if (( i % CONCURRENT_REQUESTS == 0 )); then
+            wait $(jobs -p | grep -v "^$sampler_pid$" | grep -v "^$app_pid$")
+        fi
+    done
+    wait $(jobs -p | grep -v "^$sampler_pid$" | grep -v "^$app_pid$")
+    local end_time=$(date +%s%3N)
+
+    touch "$sampling_file"
+    wait $sampler_pid 2>/dev/null
+    rm -f "$sampling_file"
+
+    peak_rss=$(awk 'BEGIN{max=0} {if($1>max) max=$1} END {print max}' "benchmark_${mode}_rss.txt")
+    browsers=$(awk 'BEGIN{max=0} {if($2>max) max=$2} END {print max}' "benchmark_${mode}_rss.txt")
+    local successful=$(grep -c "^200$" "$successful_file")
+    local elapsed=$((end_time - start_time))
+    local per_minute=$(awk -v s=$successful -v e=$elapsed 'BEGIN {printf "%.1f", s * 60000 / e}')
+    local per_gb="n/a"
+    if [ "$peak_rss" -gt 0 ]; then
+        per_gb=$(awk -v p=$per_minute -v r=$peak_rss 'BEGIN {printf "%.1f", p * 1024 / r}')
+    fi
+
+    echo "   ✅ $successful/$TOTAL_REQUESTS captures in ${elapsed}ms"
+    echo "   📈 $per_minute captures/minute, peak browser RSS ${peak_rss} MB in $browsers browser(s)"
+    echo "$mode,$TOTAL_REQUESTS,$successful,$elapsed,$per_minute,$peak_rss,$browsers,$per_gb" >> "$RESULTS_FILE"
+
+    kill $app_pid
+    wait $app_pid 2>/dev/null
+    rm -f "$successful_file" "benchmark_${mode}_rss.txt"
+    echo ""
+}
+
+run_mode process
+run_mode context
+
+echo "📊 Results"
+echo "=========="
+column -t -s',' "$RESULTS_FILE" 2>/dev/null || cat "$RESULTS_FILE"
+echo ""
+echo "📄 Detailed results: $RESULTS_FILE"
@@ -37,4 +37,12 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
         
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Long-poll endpoints complete on an async dispatch, which is authorized again.
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
 } 
\ No newline at end of file
@@ -1,8 +1,10 @@
 package com.dlocal.slackshot.config;
 
+import com.codeborne.selenide.SelenideConfig;
+import org.openqa.selenium.MutableCapabilities;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import jakarta.annotation.PostConstruct;
 import java.io.File;
 import java.util.List;
 import java.util.Map;
@@ -26,13 +28,13 @@ public class WebDriverConfig {
     @Value("${selenide.disableSecurity:false}")
     private boolean disableSecurity;
     
-    @PostConstruct
-    public void setupSelenide() {
-        com.codeborne.selenide.Configuration.browser = browser;
-        com.codeborne.selenide.Configuration.headless = headless;
-        com.codeborne.selenide.Configuration.timeout = timeout;
-        com.codeborne.selenide.Configuration.browserSize = browserSize;
-        
+    /**
+     * Shared, read-only Selenide settings. Each capture wraps its leased driver in
+     * its own SelenideDriver built from this config, so nothing is bound to the
+     * calling thread or to Selenide's static Configuration.
+     */
+    @Bean
+    public SelenideConfig selenideConfig() {
         String chromeBinary = findChromeBinary();
         
         List<String> chromeArgs = new ArrayList<>(List.of(
@@ -54,9 +56,17 @@ public class WebDriverConfig {
             "binary", chromeBinary
         );
         
-        com.codeborne.selenide.Configuration.browserCapabilities.setCapability("goog:chromeOptions", chromeOptions);
-        com.codeborne.selenide.Configuration.screenshots = true;
-        com.codeborne.selenide.Configuration.savePageSource = false;
+        MutableCapabilities capabilities = new MutableCapabilities();
+        capabilities.setCapability("goog:chromeOptions", chromeOptions);
+        
+        return new SelenideConfig()
+            .browser(browser)
+            .headless(headless)
+            .timeout(timeout)
+            .browserSize(browserSize)
+            .browserCapabilities(capabilities)
+            .screenshots(true)
+            .savePageSource(false);
     }
     
     private String findChromeBinary() {
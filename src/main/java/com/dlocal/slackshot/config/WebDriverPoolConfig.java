@@ -1,5 +1,7 @@
 package com.dlocal.slackshot.config;
 
+import com.dlocal.slackshot.service.WebDriverManager;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -13,11 +15,8 @@ import java.util.concurrent.ThreadPoolExecutor;
 @EnableAsync
 public class WebDriverPoolConfig {
 
-    @Value("${webdriver.pool.core-size:2}")
-    private int corePoolSize;
-
-    @Value("${webdriver.pool.max-size:5}")
-    private int maxPoolSize;
+    @Autowired
+    private WebDriverManager webDriverManager;
 
     @Value("${webdriver.pool.queue-capacity:10}")
     private int queueCapacity;
@@ -25,18 +24,25 @@ public class WebDriverPoolConfig {
     @Value("${webdriver.pool.keep-alive-seconds:60}")
     private int keepAliveSeconds;
 
+    /**
+     * Capture concurrency follows the WebDriver pool: the executor runs as many
+     * captures as the pool has driver slots, and is resized with it. Admission
+     * happens in CaptureExecutor, so a task that still does not fit here is
+     * rejected rather than run on the submitting thread.
+     */
     @Bean("webDriverTaskExecutor")
     public Executor webDriverTaskExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(corePoolSize);
-        executor.setMaxPoolSize(maxPoolSize);
+        executor.setCorePoolSize(webDriverManager.getCapacity());
+        executor.setMaxPoolSize(webDriverManager.getMaxPoolSize());
         executor.setQueueCapacity(queueCapacity);
         executor.setKeepAliveSeconds(keepAliveSeconds);
         executor.setThreadNamePrefix("WebDriver-");
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(30);
         executor.initialize();
+        webDriverManager.addCapacityListener(executor::setCorePoolSize);
         return executor;
     }
-} 
\ No newline at end of file
+}
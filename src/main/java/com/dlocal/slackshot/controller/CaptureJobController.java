@@ -0,0 +1,137 @@
+package com.dlocal.slackshot.controller;
+
+import com.dlocal.slackshot.model.Screenshot;
+import com.dlocal.slackshot.repository.ScreenshotRepository;
+import com.dlocal.slackshot.repository.SiteRepository;
+import com.dlocal.slackshot.service.CaptureJob;
+import com.dlocal.slackshot.service.CaptureJobService;
+import com.dlocal.slackshot.service.CaptureRejectedException;
+import com.dlocal.slackshot.service.ScreenshotService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.net.URI;
+import java.time.ZoneId;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/jobs")
+public class CaptureJobController {
+
+    private static final Logger log = LoggerFactory.getLogger(CaptureJobController.class);
+
+    @Autowired
+    private CaptureJobService captureJobService;
+
+    @Autowired
+    private ScreenshotService screenshotService;
+
+    @Autowired
+    private ScreenshotRepository screenshotRepository;
+
+    @Autowired
+    private SiteRepository siteRepository;
+
+    @Value("${capture.jobs.max-wait-seconds:60}")
+    private long maxWaitSeconds;
+
+    /**
+     * Submit a capture job for a site
+     */
+    @PostMapping
+    public ResponseEntity<?> submitJob(@RequestParam("site") String siteName) {
+        if (!siteRepository.existsByName(siteName)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        try {
+            CaptureJob job = captureJobService.submit(siteName);
+            return ResponseEntity.accepted()
+                .location(URI.create("/api/jobs/" + job.getId()))
+                .body(job);
+        } catch (CaptureRejectedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage() + ", try again later");
+        }
+    }
+
+    /**
+     * Get capture job status
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<CaptureJob> getJob(@PathVariable("id") String id) {
+        return captureJobService.getJob(id)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Wait up to timeout seconds for a capture job to finish, then get its status
+     */
+    @GetMapping("/{id}/wait")
+    public DeferredResult<ResponseEntity<CaptureJob>> waitForJob(@PathVariable("id") String id,
+                                                                 @RequestParam(value = "timeout", defaultValue = "30") long timeout) {
+        long waitSeconds = Math.max(1, Math.min(timeout, maxWaitSeconds));
+        Optional<CaptureJob> job = captureJobService.getJob(id);
+
+        DeferredResult<ResponseEntity<CaptureJob>> result = new DeferredResult<>(waitSeconds * 1000);
+        if (job.isEmpty()) {
+            result.setResult(ResponseEntity.notFound().build());
+            return result;
+        }
+
+        result.onTimeout(() -> result.setResult(ResponseEntity.ok(job.get())));
+        job.get().getCompletion().thenAccept(done -> result.setResult(ResponseEntity.ok(done)));
+        return result;
+    }
+
+    /**
+     * Get the screenshot taken by a finished capture job
+     */
+    @GetMapping("/{id}/result")
+    public ResponseEntity<?> getJobResult(@PathVariable("id") String id) {
+        Optional<CaptureJob> job = captureJobService.getJob(id);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        switch (job.get().getStatus()) {
+            case SUCCEEDED:
+                try {
+                    Screenshot screenshot = screenshotRepository.findById(job.get().getScreenshotId())
+                        .orElseThrow(() -> new RuntimeException("Screenshot not found: " + job.get().getScreenshotId()));
+                    return ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(screenshot.getContentType()))
+                        .eTag(screenshotService.getETag(screenshot))
+                        .lastModified(screenshot.getCreatedAt().atZone(ZoneId.systemDefault()))
+                        .body(screenshotService.getImageResource(screenshot));
+                } catch (Exception e) {
+                    log.error("Error getting result of capture job: {}", id, e);
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body("Error getting screenshot: " + e.getMessage());
+                }
+            case FAILED:
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Capture failed: " + job.get().getError());
+            default:
+                return ResponseEntity.accepted().body(job.get());
+        }
+    }
+
+    /**
+     * Get capture job queue statistics
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<CaptureJobService.JobStats> getJobStats() {
+        return ResponseEntity.ok(captureJobService.getStats());
+    }
+}
@@ -1,5 +1,7 @@
 package com.dlocal.slackshot.controller;
 
+import com.dlocal.slackshot.model.CaptureOptions;
+import com.dlocal.slackshot.model.ReadinessOptions;
 import com.dlocal.slackshot.model.Screenshot;
 import com.dlocal.slackshot.model.Site;
 import com.dlocal.slackshot.model.ScreenshotTask;
@@ -8,17 +10,31 @@ import com.dlocal.slackshot.repository.ScreenshotRepository;
 import com.dlocal.slackshot.repository.SiteRepository;
 import com.dlocal.slackshot.repository.ScreenshotTaskRepository;
 import com.dlocal.slackshot.repository.SlackTaskRepository;
+import com.dlocal.slackshot.service.CaptureCoordinator;
+import com.dlocal.slackshot.service.CaptureRejectedException;
+import com.dlocal.slackshot.service.ImageStoreService;
+import com.dlocal.slackshot.service.LatestScreenshotCache;
+import com.dlocal.slackshot.service.PageReadinessService;
+import com.dlocal.slackshot.service.RequestBlockingService;
 import com.dlocal.slackshot.service.ScreenshotService;
+import com.dlocal.slackshot.service.SessionCacheService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -42,6 +58,24 @@ public class SiteController {
     @Autowired
     private SlackTaskRepository slackTaskRepository;
 
+    @Autowired
+    private SessionCacheService sessionCacheService;
+
+    @Autowired
+    private PageReadinessService pageReadinessService;
+
+    @Autowired
+    private RequestBlockingService requestBlockingService;
+
+    @Autowired
+    private ImageStoreService imageStoreService;
+
+    @Autowired
+    private LatestScreenshotCache latestScreenshotCache;
+
+    @Autowired
+    private CaptureCoordinator captureCoordinator;
+
     /**
      * Add a new site
      */
@@ -59,6 +93,26 @@ public class SiteController {
                 }
             }
             
+            CaptureOptions capture = site.getCapture();
+            if (capture != null) {
+                if (capture.getQuality() != null && (capture.getQuality() < 0 || capture.getQuality() > 100)) {
+                    return ResponseEntity.badRequest().body("Capture quality must be between 0 and 100");
+                }
+                if ((capture.getClipWidth() != null || capture.getClipHeight() != null)
+                        && (!capture.hasClip() || capture.getClipWidth() <= 0 || capture.getClipHeight() <= 0)) {
+                    return ResponseEntity.badRequest().body("Clip width and height must both be positive");
+                }
+                if (capture.getDeviceScaleFactor() != null && capture.getDeviceScaleFactor() <= 0) {
+                    return ResponseEntity.badRequest().body("Device scale factor must be positive");
+                }
+            }
+            
+            ReadinessOptions readiness = site.getReadiness();
+            if (readiness != null && readiness.getStrategy() == ReadinessOptions.Strategy.SELECTOR
+                    && (readiness.getSelector() == null || readiness.getSelector().isEmpty())) {
+                return ResponseEntity.badRequest().body("Selector is required for readiness strategy: SELECTOR");
+            }
+            
             if (siteRepository.existsByName(site.getName())) {
                 return ResponseEntity.badRequest().body("Site with name '" + site.getName() + "' already exists");
             }
@@ -79,12 +133,18 @@ public class SiteController {
      * Get latest screenshot for a site
      */
     @GetMapping
-    public ResponseEntity<?> getScreenshot(@RequestParam("name") String name) {
+    public ResponseEntity<?> getScreenshot(@RequestParam("name") String name, WebRequest request) {
         try {
-            Screenshot screenshot = screenshotService.getLatestScreenshot(name);
+            LatestScreenshotCache.CachedScreenshot screenshot = screenshotService.getLatestCached(name);
+            if (request.checkNotModified(screenshot.getEtag())) {
+                latestScreenshotCache.recordNotModified();
+                return null;
+            }
             return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_PNG)
-                .body(screenshot.getImageData());
+                .contentType(MediaType.parseMediaType(screenshot.getContentType()))
+                .eTag(screenshot.getEtag())
+                .lastModified(screenshot.getCreatedAt().atZone(ZoneId.systemDefault()))
+                .body(screenshotService.getImageResource(screenshot));
         } catch (Exception e) {
             log.error("Error getting screenshot for site: {}", name, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -99,9 +159,9 @@ public class SiteController {
     public ResponseEntity<?> takeScreenshotNow(@PathVariable("name") String name) {
         try {
             Screenshot screenshot = screenshotService.takeScreenshotNow(name);
-            return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_PNG)
-                .body(screenshot.getImageData());
+            return imageResponse(screenshot);
+        } catch (CaptureRejectedException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
             log.error("Error taking screenshot for site: {}", name, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -109,6 +169,65 @@ public class SiteController {
         }
     }
 
+    /**
+     * Get a screenshot no older than maxAge seconds, capturing a new one only when the stored one is older
+     */
+    @GetMapping("/{name}/screenshot")
+    public ResponseEntity<?> getFreshScreenshot(@PathVariable("name") String name,
+                                                @RequestParam("maxAge") long maxAge,
+                                                WebRequest request) {
+        try {
+            if (maxAge < 0) {
+                return ResponseEntity.badRequest().body("maxAge must not be negative");
+            }
+            if (!siteRepository.existsByName(name)) {
+                return ResponseEntity.notFound().build();
+            }
+            
+            LatestScreenshotCache.CachedScreenshot latest = findLatestCached(name);
+            if (latest != null) {
+                long age = Duration.between(latest.getCreatedAt(), LocalDateTime.now()).getSeconds();
+                if (age <= maxAge) {
+                    captureCoordinator.recordFreshHit();
+                    if (request.checkNotModified(latest.getEtag())) {
+                        latestScreenshotCache.recordNotModified();
+                        return null;
+                    }
+                    return ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(latest.getContentType()))
+                        .eTag(latest.getEtag())
+                        .lastModified(latest.getCreatedAt().atZone(ZoneId.systemDefault()))
+                        .header(HttpHeaders.AGE, String.valueOf(Math.max(age, 0)))
+                        .body(screenshotService.getImageResource(latest));
+                }
+            }
+            
+            Screenshot screenshot = screenshotService.takeScreenshotNow(name);
+            return imageResponse(screenshot);
+        } catch (CaptureRejectedException e) {
+            return tooManyRequests(e);
+        } catch (Exception e) {
+            log.error("Error getting fresh screenshot for site: {}", name, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error getting screenshot: " + e.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> tooManyRequests(CaptureRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+            .body(e.getMessage() + ", try again later");
+    }
+
+    private LatestScreenshotCache.CachedScreenshot findLatestCached(String name) {
+        try {
+            return screenshotService.getLatestCached(name);
+        } catch (RuntimeException e) {
+            // No screenshot yet
+            return null;
+        }
+    }
+
     /**
      * Get all sites
      */
@@ -175,6 +294,46 @@ public class SiteController {
         }
     }
 
+    /**
+     * Get page readiness wait times per site
+     */
+    @GetMapping("/stats/readiness")
+    public ResponseEntity<Map<String, PageReadinessService.WaitStats>> getReadinessStats() {
+        return ResponseEntity.ok(pageReadinessService.getStats());
+    }
+
+    /**
+     * Get bytes transferred and page load time per site, with and without request blocking
+     */
+    @GetMapping("/stats/network")
+    public ResponseEntity<Map<String, RequestBlockingService.SiteNetworkStats>> getNetworkStats() {
+        return ResponseEntity.ok(requestBlockingService.getStats());
+    }
+
+    /**
+     * Get image store statistics
+     */
+    @GetMapping("/stats/images")
+    public ResponseEntity<ImageStoreService.ImageStoreStats> getImageStoreStats() {
+        return ResponseEntity.ok(imageStoreService.getStats());
+    }
+
+    /**
+     * Get latest screenshot cache statistics
+     */
+    @GetMapping("/stats/cache")
+    public ResponseEntity<LatestScreenshotCache.CacheStats> getCacheStats() {
+        return ResponseEntity.ok(latestScreenshotCache.getStats());
+    }
+
+    /**
+     * Get on-demand capture statistics
+     */
+    @GetMapping("/stats/captures")
+    public ResponseEntity<CaptureCoordinator.CaptureStats> getCaptureStats() {
+        return ResponseEntity.ok(captureCoordinator.getStats());
+    }
+
     /**
      * Get site by name
      */
@@ -196,6 +355,8 @@ public class SiteController {
                 return ResponseEntity.notFound().build();
             }
             
+            sessionCacheService.evict(site.get());
+            screenshotService.deleteScreenshots(site.get());
             siteRepository.delete(site.get());
             log.info("Site deleted successfully: {}", name);
             
@@ -208,6 +369,18 @@ public class SiteController {
         }
     }
 
+    /**
+     * Streams the image from storage. Content-Length, Accept-Ranges and 206
+     * partial responses come from Spring's Resource handling.
+     */
+    private ResponseEntity<Resource> imageResponse(Screenshot screenshot) {
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(screenshot.getContentType()))
+            .eTag(screenshotService.getETag(screenshot))
+            .lastModified(screenshot.getCreatedAt().atZone(ZoneId.systemDefault()))
+            .body(screenshotService.getImageResource(screenshot));
+    }
+
     public static class SiteWithTasksResponse {
         private Site site;
         private List<ScreenshotTask> screenshotTasks;
@@ -6,6 +6,7 @@ import com.dlocal.slackshot.model.Site;
 import com.dlocal.slackshot.repository.ScreenshotTaskRepository;
 import com.dlocal.slackshot.repository.SlackTaskRepository;
 import com.dlocal.slackshot.repository.SiteRepository;
+import com.dlocal.slackshot.service.TaskSchedulerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,6 +34,9 @@ public class TaskController {
     @Autowired
     private SiteRepository siteRepository;
 
+    @Autowired
+    private TaskSchedulerService taskSchedulerService;
+
     /**
      * Add a new screenshot task
      */
@@ -53,6 +57,7 @@ public class TaskController {
             task.setCreatedAt(LocalDateTime.now());
             
             ScreenshotTask savedTask = screenshotTaskRepository.save(task);
+            taskSchedulerService.schedule(savedTask);
             log.info("Screenshot task added for site: {}", request.getSiteName());
             
             return ResponseEntity.ok().body("Screenshot task added successfully");
@@ -86,6 +91,7 @@ public class TaskController {
             task.setCreatedAt(LocalDateTime.now());
             
             SlackTask savedTask = slackTaskRepository.save(task);
+            taskSchedulerService.schedule(savedTask);
             log.info("Slack task added for site: {}", request.getSiteName());
             
             return ResponseEntity.ok().body("Slack task added successfully");
@@ -206,6 +212,14 @@ public class TaskController {
         }
     }
 
+    /**
+     * Get task scheduler statistics
+     */
+    @GetMapping("/api/tasks/scheduler")
+    public ResponseEntity<TaskSchedulerService.SchedulerStats> getSchedulerStats() {
+        return ResponseEntity.ok(taskSchedulerService.getStats());
+    }
+
     /**
      * Delete a screenshot task
      */
@@ -220,6 +234,7 @@ public class TaskController {
             ScreenshotTask screenshotTask = task.get();
             screenshotTask.setActive(false);
             screenshotTaskRepository.save(screenshotTask);
+            taskSchedulerService.schedule(screenshotTask);
             
             log.info("Screenshot task deactivated: {}", id);
             return ResponseEntity.ok().body("Screenshot task deactivated successfully");
@@ -237,14 +252,11 @@ public class TaskController {
     @PutMapping("/api/screenshot/task/{id}/interval")
     public ResponseEntity<?> updateScreenshotTaskInterval(@PathVariable("id") Long id, @RequestBody UpdateIntervalRequest request) {
         try {
-            Optional<ScreenshotTask> task = screenshotTaskRepository.findById(id);
-            if (task.isEmpty()) {
+            // Only the interval: saving the whole row could undo a run that advanced it meanwhile
+            if (screenshotTaskRepository.updateTaskInterval(id, request.getInterval()) == 0) {
                 return ResponseEntity.notFound().build();
             }
-            
-            ScreenshotTask screenshotTask = task.get();
-            screenshotTask.setTaskInterval(request.getInterval());
-            screenshotTaskRepository.save(screenshotTask);
+            screenshotTaskRepository.findById(id).ifPresent(taskSchedulerService::scheduleChanged);
             
             log.info("Screenshot task interval updated for ID: {} to: {}", id, request.getInterval());
             return ResponseEntity.ok().body("Screenshot task interval updated successfully");
@@ -270,6 +282,7 @@ public class TaskController {
             SlackTask slackTask = task.get();
             slackTask.setActive(false);
             slackTaskRepository.save(slackTask);
+            taskSchedulerService.schedule(slackTask);
             
             log.info("Slack task deactivated: {}", id);
             return ResponseEntity.ok().body("Slack task deactivated successfully");
@@ -287,14 +300,11 @@ public class TaskController {
     @PutMapping("/api/slack/task/{id}/interval")
     public ResponseEntity<?> updateSlackTaskInterval(@PathVariable("id") Long id, @RequestBody UpdateIntervalRequest request) {
         try {
-            Optional<SlackTask> task = slackTaskRepository.findById(id);
-            if (task.isEmpty()) {
+            // Only the interval: saving the whole row could undo a run that advanced it meanwhile
+            if (slackTaskRepository.updateTaskInterval(id, request.getInterval()) == 0) {
                 return ResponseEntity.notFound().build();
             }
-            
-            SlackTask slackTask = task.get();
-            slackTask.setTaskInterval(request.getInterval());
-            slackTaskRepository.save(slackTask);
+            slackTaskRepository.findById(id).ifPresent(taskSchedulerService::scheduleChanged);
             
             log.info("Slack task interval updated for ID: {} to: {}", id, request.getInterval());
             return ResponseEntity.ok().body("Slack task interval updated successfully");
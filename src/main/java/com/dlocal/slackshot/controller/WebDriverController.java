@@ -0,0 +1,60 @@
+package com.dlocal.slackshot.controller;
+
+import com.dlocal.slackshot.service.AdaptivePoolSizer;
+import com.dlocal.slackshot.service.CaptureExecutor;
+import com.dlocal.slackshot.service.SessionCacheService;
+import com.dlocal.slackshot.service.WebDriverManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/webdriver")
+public class WebDriverController {
+
+    @Autowired
+    private WebDriverManager webDriverManager;
+
+    @Autowired
+    private SessionCacheService sessionCacheService;
+
+    @Autowired
+    private AdaptivePoolSizer adaptivePoolSizer;
+
+    @Autowired
+    private CaptureExecutor captureExecutor;
+
+    /**
+     * Get WebDriver pool statistics
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<WebDriverManager.PoolStats> getPoolStats() {
+        return ResponseEntity.ok(webDriverManager.getPoolStats());
+    }
+
+    /**
+     * Get cached login session statistics
+     */
+    @GetMapping("/sessions/stats")
+    public ResponseEntity<SessionCacheService.SessionCacheStats> getSessionStats() {
+        return ResponseEntity.ok(sessionCacheService.getStats());
+    }
+
+    /**
+     * Get adaptive pool sizing decisions
+     */
+    @GetMapping("/sizing")
+    public ResponseEntity<AdaptivePoolSizer.SizingStats> getSizingStats() {
+        return ResponseEntity.ok(adaptivePoolSizer.getStats());
+    }
+
+    /**
+     * Get capture queue statistics per priority class
+     */
+    @GetMapping("/scheduler")
+    public ResponseEntity<CaptureExecutor.SchedulerStats> getSchedulerStats() {
+        return ResponseEntity.ok(captureExecutor.getStats());
+    }
+}
@@ -0,0 +1,49 @@
+package com.dlocal.slackshot.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Requests a site's page should not load while it is captured.
+ */
+@Embeddable
+public class BlockingOptions {
+    
+    @Column(name = "blocking_enabled")
+    private Boolean enabled;
+    
+    @Column(name = "blocking_use_defaults")
+    private Boolean useDefaults;
+    
+    /**
+     * Comma separated URL patterns, '*' matches any characters.
+     */
+    @Column(name = "blocked_url_patterns", length = 2048)
+    private String urlPatterns;
+    
+    /**
+     * Comma separated resource types: image, font, media, stylesheet, script.
+     */
+    @Column(name = "blocked_resource_types")
+    private String resourceTypes;
+    
+    public BlockingOptions() {}
+    
+    public BlockingOptions(Boolean enabled, Boolean useDefaults, String urlPatterns, String resourceTypes) {
+        this.enabled = enabled;
+        this.useDefaults = useDefaults;
+        this.urlPatterns = urlPatterns;
+        this.resourceTypes = resourceTypes;
+    }
+    
+    public Boolean getEnabled() { return enabled; }
+    public void setEnabled(Boolean enabled) { this.enabled = enabled; }
+    
+    public Boolean getUseDefaults() { return useDefaults; }
+    public void setUseDefaults(Boolean useDefaults) { this.useDefaults = useDefaults; }
+    
+    public String getUrlPatterns() { return urlPatterns; }
+    public void setUrlPatterns(String urlPatterns) { this.urlPatterns = urlPatterns; }
+    
+    public String getResourceTypes() { return resourceTypes; }
+    public void setResourceTypes(String resourceTypes) { this.resourceTypes = resourceTypes; }
+}
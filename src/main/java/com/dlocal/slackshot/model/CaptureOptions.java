@@ -0,0 +1,83 @@
+package com.dlocal.slackshot.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Image format and region used when a site's page is captured.
+ */
+@Embeddable
+public class CaptureOptions {
+    
+    public enum Format {
+        PNG,
+        JPEG,
+        WEBP
+    }
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "capture_format")
+    private Format format;
+    
+    /**
+     * 0-100, only used for JPEG and WEBP.
+     */
+    @Column(name = "capture_quality")
+    private Integer quality;
+    
+    /**
+     * CSS selector of the element to capture instead of the window.
+     */
+    @Column(name = "capture_selector")
+    private String selector;
+    
+    @Column(name = "capture_full_page")
+    private Boolean fullPage;
+    
+    @Column(name = "capture_scale_factor")
+    private Double deviceScaleFactor;
+    
+    @Column(name = "clip_x")
+    private Double clipX;
+    
+    @Column(name = "clip_y")
+    private Double clipY;
+    
+    @Column(name = "clip_width")
+    private Double clipWidth;
+    
+    @Column(name = "clip_height")
+    private Double clipHeight;
+    
+    public CaptureOptions() {}
+    
+    public Format getFormat() { return format; }
+    public void setFormat(Format format) { this.format = format; }
+    
+    public Integer getQuality() { return quality; }
+    public void setQuality(Integer quality) { this.quality = quality; }
+    
+    public String getSelector() { return selector; }
+    public void setSelector(String selector) { this.selector = selector; }
+    
+    public Boolean getFullPage() { return fullPage; }
+    public void setFullPage(Boolean fullPage) { this.fullPage = fullPage; }
+    
+    public Double getDeviceScaleFactor() { return deviceScaleFactor; }
+    public void setDeviceScaleFactor(Double deviceScaleFactor) { this.deviceScaleFactor = deviceScaleFactor; }
+    
+    public Double getClipX() { return clipX; }
+    public void setClipX(Double clipX) { this.clipX = clipX; }
+    
+    public Double getClipY() { return clipY; }
+    public void setClipY(Double clipY) { this.clipY = clipY; }
+    
+    public Double getClipWidth() { return clipWidth; }
+    public void setClipWidth(Double clipWidth) { this.clipWidth = clipWidth; }
+    
+    public Double getClipHeight() { return clipHeight; }
+    public void setClipHeight(Double clipHeight) { this.clipHeight = clipHeight; }
+    
+    public boolean hasClip() {
+        return clipWidth != null && clipHeight != null;
+    }
+}
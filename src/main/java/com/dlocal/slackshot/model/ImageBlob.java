@@ -0,0 +1,48 @@
+package com.dlocal.slackshot.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * An image file in the content-addressed store, counted by the screenshots
+ * that point at it.
+ */
+@Entity
+@Table(name = "image_blobs")
+public class ImageBlob {
+    
+    @Id
+    @Column(length = 64)
+    private String hash;
+    
+    @Column(nullable = false)
+    private long size;
+    
+    @Column(nullable = false)
+    private int refCount;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+    
+    public ImageBlob() {}
+    
+    public ImageBlob(String hash, long size, int refCount, LocalDateTime createdAt) {
+        this.hash = hash;
+        this.size = size;
+        this.refCount = refCount;
+        this.createdAt = createdAt;
+    }
+    
+    public String getHash() { return hash; }
+    public void setHash(String hash) { this.hash = hash; }
+    
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+    
+    public int getRefCount() { return refCount; }
+    public void setRefCount(int refCount) { this.refCount = refCount; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
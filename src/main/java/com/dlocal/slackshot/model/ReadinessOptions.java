@@ -0,0 +1,51 @@
+package com.dlocal.slackshot.model;
+
+import jakarta.persistence.*;
+
+/**
+ * How to decide that a site's page has finished rendering before it is captured.
+ */
+@Embeddable
+public class ReadinessOptions {
+    
+    public enum Strategy {
+        AUTO,
+        NETWORK_IDLE,
+        DOM_QUIET,
+        SELECTOR
+    }
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "readiness_strategy")
+    private Strategy strategy;
+    
+    @Column(name = "ready_selector")
+    private String selector;
+    
+    @Column(name = "readiness_timeout_ms")
+    private Long timeoutMs;
+    
+    @Column(name = "readiness_quiet_ms")
+    private Long quietMs;
+    
+    public ReadinessOptions() {}
+    
+    public ReadinessOptions(Strategy strategy, String selector, Long timeoutMs, Long quietMs) {
+        this.strategy = strategy;
+        this.selector = selector;
+        this.timeoutMs = timeoutMs;
+        this.quietMs = quietMs;
+    }
+    
+    public Strategy getStrategy() { return strategy; }
+    public void setStrategy(Strategy strategy) { this.strategy = strategy; }
+    
+    public String getSelector() { return selector; }
+    public void setSelector(String selector) { this.selector = selector; }
+    
+    public Long getTimeoutMs() { return timeoutMs; }
+    public void setTimeoutMs(Long timeoutMs) { this.timeoutMs = timeoutMs; }
+    
+    public Long getQuietMs() { return quietMs; }
+    public void setQuietMs(Long quietMs) { this.quietMs = quietMs; }
+}
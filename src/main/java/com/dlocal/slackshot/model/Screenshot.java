@@ -5,7 +5,9 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "screenshots")
+@Table(name = "screenshots", indexes = {
+    @Index(name = "idx_screenshots_site_created", columnList = "site_id, created_at")
+})
 public class Screenshot {
     
     @Id
@@ -23,9 +25,16 @@ public class Screenshot {
     @Column(nullable = false)
     private LocalDateTime createdAt;
     
-    @Lob
-    @Column(columnDefinition = "LONGBLOB")
-    private byte[] imageData;
+    /**
+     * SHA-256 of the image in the image store. Null for screenshots whose bytes
+     * are still in the legacy column (see ScreenshotImage) and have not been
+     * migrated yet.
+     */
+    @Column(name = "image_hash", length = 64)
+    private String imageHash;
+    
+    @Column(name = "image_size")
+    private Long size;
     
     @ManyToOne
     @JoinColumn(name = "site_id")
@@ -33,12 +42,12 @@ public class Screenshot {
     
     public Screenshot() {}
     
-    public Screenshot(String name, String url, String type, LocalDateTime createdAt, byte[] imageData, Site site) {
+    public Screenshot(String name, String url, String type, LocalDateTime createdAt, String imageHash, Site site) {
         this.name = name;
         this.url = url;
         this.type = type;
         this.createdAt = createdAt;
-        this.imageData = imageData;
+        this.imageHash = imageHash;
         this.site = site;
     }
     
@@ -54,11 +63,18 @@ public class Screenshot {
     public String getType() { return type; }
     public void setType(String type) { this.type = type; }
     
+    public String getContentType() {
+        return "image/" + (type != null ? type : "png");
+    }
+    
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
-    public byte[] getImageData() { return imageData; }
-    public void setImageData(byte[] imageData) { this.imageData = imageData; }
+    public String getImageHash() { return imageHash; }
+    public void setImageHash(String imageHash) { this.imageHash = imageHash; }
+    
+    public Long getSize() { return size; }
+    public void setSize(Long size) { this.size = size; }
     
     public Site getSite() { return site; }
     public void setSite(Site site) { this.site = site; }
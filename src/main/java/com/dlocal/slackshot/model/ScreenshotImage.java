@@ -0,0 +1,33 @@
+package com.dlocal.slackshot.model;
+
+import jakarta.persistence.*;
+
+/**
+ * The legacy image column of the screenshots table, mapped on its own so that
+ * loading a Screenshot never selects it. Only rows not yet moved to the image
+ * store still have data here.
+ */
+@Entity
+@Table(name = "screenshots")
+public class ScreenshotImage {
+    
+    /**
+     * Rows are only ever created through Screenshot; the generation strategy is
+     * repeated so both mappings agree on the id column.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Lob
+    @Column(columnDefinition = "LONGBLOB")
+    private byte[] imageData;
+    
+    public ScreenshotImage() {}
+    
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public byte[] getImageData() { return imageData; }
+    public void setImageData(byte[] imageData) { this.imageData = imageData; }
+}
@@ -1,5 +1,6 @@
 package com.dlocal.slackshot.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 
 import java.net.URL;
@@ -25,6 +26,23 @@ public class Site {
     
     private String password;
     
+    @Embedded
+    private ReadinessOptions readiness;
+    
+    @Embedded
+    private BlockingOptions blocking;
+    
+    @Embedded
+    private CaptureOptions capture;
+    
+    /**
+     * Id of the newest screenshot, moved forward only by
+     * SiteRepository.advanceLatestScreenshot so saving a Site never rewinds it.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "latest_screenshot_id", insertable = false, updatable = false)
+    private Long latestScreenshotId;
+    
     public enum LoginType {
         NONE,
         JENKINS,
@@ -60,6 +78,18 @@ public class Site {
     public String getPassword() { return password; }
     public void setPassword(String password) { this.password = password; }
     
+    public ReadinessOptions getReadiness() { return readiness; }
+    public void setReadiness(ReadinessOptions readiness) { this.readiness = readiness; }
+    
+    public BlockingOptions getBlocking() { return blocking; }
+    public void setBlocking(BlockingOptions blocking) { this.blocking = blocking; }
+    
+    public CaptureOptions getCapture() { return capture; }
+    public void setCapture(CaptureOptions capture) { this.capture = capture; }
+    
+    public Long getLatestScreenshotId() { return latestScreenshotId; }
+    public void setLatestScreenshotId(Long latestScreenshotId) { this.latestScreenshotId = latestScreenshotId; }
+    
     public String getSiteId() {
         return name + "_" + id;
     }
@@ -0,0 +1,71 @@
+package com.dlocal.slackshot.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "site_sessions")
+public class SiteSession {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne
+    @JoinColumn(name = "site_id", nullable = false, unique = true)
+    private Site site;
+    
+    // Encrypted by SessionCipher, as is localStorage
+    @Lob
+    @Column(nullable = false, columnDefinition = "CLOB")
+    private String cookies;
+    
+    private String origin;
+    
+    @Lob
+    @Column(columnDefinition = "CLOB")
+    private String localStorage;
+    
+    @Column(nullable = false)
+    private LocalDateTime capturedAt;
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+    
+    public SiteSession() {}
+    
+    public SiteSession(Site site, String cookies, String origin, String localStorage, LocalDateTime capturedAt, LocalDateTime expiresAt) {
+        this.site = site;
+        this.cookies = cookies;
+        this.origin = origin;
+        this.localStorage = localStorage;
+        this.capturedAt = capturedAt;
+        this.expiresAt = expiresAt;
+    }
+    
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Site getSite() { return site; }
+    public void setSite(Site site) { this.site = site; }
+    
+    public String getCookies() { return cookies; }
+    public void setCookies(String cookies) { this.cookies = cookies; }
+    
+    public String getOrigin() { return origin; }
+    public void setOrigin(String origin) { this.origin = origin; }
+    
+    public String getLocalStorage() { return localStorage; }
+    public void setLocalStorage(String localStorage) { this.localStorage = localStorage; }
+    
+    public LocalDateTime getCapturedAt() { return capturedAt; }
+    public void setCapturedAt(LocalDateTime capturedAt) { this.capturedAt = capturedAt; }
+    
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+    
+    public boolean isExpired(LocalDateTime now) {
+        return !now.isBefore(expiresAt);
+    }
+}
@@ -0,0 +1,13 @@
+package com.dlocal.slackshot.repository;
+
+import com.dlocal.slackshot.model.ImageBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+    
+    @Query("SELECT COALESCE(SUM(b.size), 0) FROM ImageBlob b")
+    long sumSize();
+}
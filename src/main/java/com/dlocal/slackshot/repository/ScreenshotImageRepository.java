@@ -0,0 +1,24 @@
+package com.dlocal.slackshot.repository;
+
+import com.dlocal.slackshot.model.ScreenshotImage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface ScreenshotImageRepository extends JpaRepository<ScreenshotImage, Long> {
+    
+    @Query("SELECT i.id FROM ScreenshotImage i WHERE i.imageData IS NOT NULL AND i.id > :afterId ORDER BY i.id")
+    List<Long> findIdsWithImageData(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE ScreenshotImage i SET i.imageData = NULL WHERE i.id = :id")
+    int clearImageData(@Param("id") Long id);
+}
@@ -3,9 +3,13 @@ package com.dlocal.slackshot.repository;
 import com.dlocal.slackshot.model.ScreenshotTask;
 import com.dlocal.slackshot.model.Site;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -18,7 +22,24 @@ public interface ScreenshotTaskRepository extends JpaRepository<ScreenshotTask,
     long countByActiveTrue();
     
     long countByActiveFalse();
-    
-    @Query("SELECT t FROM ScreenshotTask t WHERE t.active = true AND t.scheduledTime <= ?1")
-    List<ScreenshotTask> findDueTasks(LocalDateTime now);
-} 
\ No newline at end of file
+
+    /**
+     * Move an active task from the slot it ran for to its next one. Leaves the
+     * task alone if it was deactivated or rescheduled in the meantime.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ScreenshotTask t SET t.scheduledTime = :nextTime WHERE t.id = :taskId " +
+           "AND t.active = true AND t.scheduledTime = :scheduledTime")
+    int advanceScheduledTime(@Param("taskId") Long taskId, @Param("scheduledTime") LocalDateTime scheduledTime,
+                             @Param("nextTime") LocalDateTime nextTime);
+
+    /**
+     * Change only the interval, so a run finishing meanwhile keeps the time it
+     * advanced to.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ScreenshotTask t SET t.taskInterval = :interval WHERE t.id = :taskId")
+    int updateTaskInterval(@Param("taskId") Long taskId, @Param("interval") Duration interval);
+}
@@ -2,7 +2,11 @@ package com.dlocal.slackshot.repository;
 
 import com.dlocal.slackshot.model.Site;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -10,4 +14,10 @@ import java.util.Optional;
 public interface SiteRepository extends JpaRepository<Site, Long> {
     Optional<Site> findByName(String name);
     boolean existsByName(String name);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE Site s SET s.latestScreenshotId = :screenshotId WHERE s.id = :siteId " +
+           "AND (s.latestScreenshotId IS NULL OR s.latestScreenshotId < :screenshotId)")
+    int advanceLatestScreenshot(@Param("siteId") Long siteId, @Param("screenshotId") Long screenshotId);
 } 
\ No newline at end of file
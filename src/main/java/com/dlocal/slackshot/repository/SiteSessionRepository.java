@@ -0,0 +1,17 @@
+package com.dlocal.slackshot.repository;
+
+import com.dlocal.slackshot.model.Site;
+import com.dlocal.slackshot.model.SiteSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface SiteSessionRepository extends JpaRepository<SiteSession, Long> {
+    Optional<SiteSession> findBySite(Site site);
+    
+    @Transactional
+    void deleteBySite(Site site);
+}
@@ -3,10 +3,13 @@ package com.dlocal.slackshot.repository;
 import com.dlocal.slackshot.model.SlackTask;
 import com.dlocal.slackshot.model.Site;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
+import java.time.Duration;
 import java.util.List;
 
 @Repository
@@ -18,7 +21,13 @@ public interface SlackTaskRepository extends JpaRepository<SlackTask, Long> {
     long countByActiveTrue();
     
     long countByActiveFalse();
-    
-    @Query("SELECT t FROM SlackTask t WHERE t.active = true AND t.scheduledTime <= ?1")
-    List<SlackTask> findDueTasks(LocalDateTime now);
+
+    /**
+     * Change only the interval, so a run finishing meanwhile keeps the time it
+     * advanced to.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE SlackTask t SET t.taskInterval = :interval WHERE t.id = :taskId")
+    int updateTaskInterval(@Param("taskId") Long taskId, @Param("interval") Duration interval);
 } 
\ No newline at end of file
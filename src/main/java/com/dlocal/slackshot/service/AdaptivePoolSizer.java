@@ -0,0 +1,273 @@
+package com.dlocal.slackshot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Grows the WebDriver pool while acquisitions or captures queue up and the host
+ * has memory and CPU to spare, and shrinks it when drivers sit idle. Captures
+ * wait in the CaptureExecutor rather than on the pool, so its queue counts as
+ * pressure too.
+ */
+@Component
+public class AdaptivePoolSizer {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptivePoolSizer.class);
+
+    private static final int DECISION_HISTORY = 20;
+
+    @Autowired
+    private WebDriverManager webDriverManager;
+
+    @Autowired
+    private CaptureExecutor captureExecutor;
+
+    @Value("${webdriver.pool.adaptive.interval-seconds:10}")
+    private int intervalSeconds;
+
+    @Value("${webdriver.pool.adaptive.grow-wait-threshold-ms:500}")
+    private long growWaitThresholdMs;
+
+    @Value("${webdriver.pool.adaptive.idle-shrink-seconds:120}")
+    private long idleShrinkSeconds;
+
+    @Value("${webdriver.pool.adaptive.min-free-memory-mb:512}")
+    private long minFreeMemoryMb;
+
+    @Value("${webdriver.pool.adaptive.driver-memory-mb:300}")
+    private long defaultDriverMemoryMb;
+
+    @Value("${webdriver.pool.adaptive.max-cpu-load:0.85}")
+    private double maxCpuLoad;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "WebDriverPool-sizer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Deque<SizingDecision> decisions = new ArrayDeque<>();
+    private final AtomicLong grows = new AtomicLong(0);
+    private final AtomicLong shrinks = new AtomicLong(0);
+    private final AtomicLong growsBlocked = new AtomicLong(0);
+
+    private long lastAcquisitions;
+    private long lastWaitNanos;
+    private long lastCapturesStarted;
+    private long lastCaptureQueueMillis;
+    private volatile long lastWindowWaitMillis;
+    private volatile long lastFreeMemoryMb = -1;
+    private volatile double lastCpuLoad = -1;
+
+    @PostConstruct
+    public void init() {
+        if (!webDriverManager.isAdaptiveSizing()) {
+            log.info("Adaptive WebDriver pool sizing disabled, capacity fixed at {}", webDriverManager.getCapacity());
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::evaluate, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void evaluate() {
+        try {
+            long[] totals = webDriverManager.getWaitTotals();
+            long acquisitions = totals[0] - lastAcquisitions;
+            long waitNanos = totals[1] - lastWaitNanos;
+            lastAcquisitions = totals[0];
+            lastWaitNanos = totals[1];
+            long acquireWaitMillis = acquisitions > 0 ? TimeUnit.NANOSECONDS.toMillis(waitNanos / acquisitions) : 0;
+
+            long[] captureTotals = captureExecutor.getWaitTotals();
+            long capturesStarted = captureTotals[0] - lastCapturesStarted;
+            long captureQueueMillis = captureTotals[1] - lastCaptureQueueMillis;
+            lastCapturesStarted = captureTotals[0];
+            lastCaptureQueueMillis = captureTotals[1];
+            long captureWaitMillis = capturesStarted > 0 ? captureQueueMillis / capturesStarted : 0;
+
+            lastWindowWaitMillis = Math.max(acquireWaitMillis, captureWaitMillis);
+
+            lastFreeMemoryMb = freeMemoryMb();
+            lastCpuLoad = cpuLoad();
+
+            int capacity = webDriverManager.getCapacity();
+            int waiting = webDriverManager.getWaitingRequests() + captureExecutor.getWaitingCaptures();
+            boolean underPressure = waiting > 0 || lastWindowWaitMillis > growWaitThresholdMs;
+
+            if (underPressure && capacity < webDriverManager.getMaxPoolSize()) {
+                grow(capacity, waiting);
+            } else if (!underPressure && capacity > webDriverManager.getMinPoolSize()
+                    && webDriverManager.getLongestIdle().compareTo(Duration.ofSeconds(idleShrinkSeconds)) >= 0) {
+                int target = webDriverManager.resize(capacity - 1);
+                shrinks.incrementAndGet();
+                record("SHRINK", capacity, target, "driver idle for over " + idleShrinkSeconds + "s");
+            }
+        } catch (Exception e) {
+            log.error("Error evaluating WebDriver pool size", e);
+        }
+    }
+
+    private void grow(int capacity, int waiting) {
+        if (lastCpuLoad >= 0 && lastCpuLoad > maxCpuLoad) {
+            growsBlocked.incrementAndGet();
+            record("HOLD", capacity, capacity, String.format("CPU load %.2f above %.2f", lastCpuLoad, maxCpuLoad));
+            return;
+        }
+
+        long driverMemoryMb = webDriverManager.getAverageDriverRssBytes() > 0
+            ? webDriverManager.getAverageDriverRssBytes() / (1024 * 1024)
+            : defaultDriverMemoryMb;
+        long affordable = lastFreeMemoryMb >= 0
+            ? (lastFreeMemoryMb - minFreeMemoryMb) / Math.max(1, driverMemoryMb)
+            : 1;
+        int step = (int) Math.min(Math.max(1, waiting), affordable);
+        if (step <= 0) {
+            growsBlocked.incrementAndGet();
+            record("HOLD", capacity, capacity, "free memory " + lastFreeMemoryMb + " MB below "
+                + (minFreeMemoryMb + driverMemoryMb) + " MB needed for another driver");
+            return;
+        }
+
+        int target = webDriverManager.resize(capacity + step);
+        grows.incrementAndGet();
+        record("GROW", capacity, target, waiting + " waiting, average wait " + lastWindowWaitMillis + " ms");
+    }
+
+    private long freeMemoryMb() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getFreeMemorySize() / (1024 * 1024);
+        }
+        return -1;
+    }
+
+    private double cpuLoad() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getCpuLoad();
+        }
+        return -1;
+    }
+
+    private void record(String action, int from, int to, String reason) {
+        SizingDecision decision = new SizingDecision(LocalDateTime.now(), action, from, to, reason);
+        if (!"HOLD".equals(action)) {
+            log.info("WebDriver pool {} {} -> {}: {}", action, from, to, reason);
+        }
+        synchronized (decisions) {
+            decisions.addFirst(decision);
+            while (decisions.size() > DECISION_HISTORY) {
+                decisions.removeLast();
+            }
+        }
+    }
+
+    public SizingStats getStats() {
+        SizingStats stats = new SizingStats();
+        stats.setAdaptive(webDriverManager.isAdaptiveSizing());
+        stats.setCapacity(webDriverManager.getCapacity());
+        stats.setMinPoolSize(webDriverManager.getMinPoolSize());
+        stats.setMaxPoolSize(webDriverManager.getMaxPoolSize());
+        stats.setGrows(grows.get());
+        stats.setShrinks(shrinks.get());
+        stats.setGrowsBlocked(growsBlocked.get());
+        stats.setWindowAverageWaitMillis(lastWindowWaitMillis);
+        stats.setFreeMemoryMb(lastFreeMemoryMb);
+        stats.setCpuLoad(lastCpuLoad);
+        synchronized (decisions) {
+            stats.setRecentDecisions(new ArrayList<>(decisions));
+        }
+        return stats;
+    }
+
+    public static class SizingDecision {
+        private final LocalDateTime timestamp;
+        private final String action;
+        private final int fromCapacity;
+        private final int toCapacity;
+        private final String reason;
+
+        public SizingDecision(LocalDateTime timestamp, String action, int fromCapacity, int toCapacity, String reason) {
+            this.timestamp = timestamp;
+            this.action = action;
+            this.fromCapacity = fromCapacity;
+            this.toCapacity = toCapacity;
+            this.reason = reason;
+        }
+
+        public LocalDateTime getTimestamp() { return timestamp; }
+        public String getAction() { return action; }
+        public int getFromCapacity() { return fromCapacity; }
+        public int getToCapacity() { return toCapacity; }
+        public String getReason() { return reason; }
+    }
+
+    public static class SizingStats {
+        private boolean adaptive;
+        private int capacity;
+        private int minPoolSize;
+        private int maxPoolSize;
+        private long grows;
+        private long shrinks;
+        private long growsBlocked;
+        private long windowAverageWaitMillis;
+        private long freeMemoryMb;
+        private double cpuLoad;
+        private List<SizingDecision> recentDecisions;
+
+        public boolean isAdaptive() { return adaptive; }
+        public void setAdaptive(boolean adaptive) { this.adaptive = adaptive; }
+
+        public int getCapacity() { return capacity; }
+        public void setCapacity(int capacity) { this.capacity = capacity; }
+
+        public int getMinPoolSize() { return minPoolSize; }
+        public void setMinPoolSize(int minPoolSize) { this.minPoolSize = minPoolSize; }
+
+        public int getMaxPoolSize() { return maxPoolSize; }
+        public void setMaxPoolSize(int maxPoolSize) { this.maxPoolSize = maxPoolSize; }
+
+        public long getGrows() { return grows; }
+        public void setGrows(long grows) { this.grows = grows; }
+
+        public long getShrinks() { return shrinks; }
+        public void setShrinks(long shrinks) { this.shrinks = shrinks; }
+
+        public long getGrowsBlocked() { return growsBlocked; }
+        public void setGrowsBlocked(long growsBlocked) { this.growsBlocked = growsBlocked; }
+
+        public long getWindowAverageWaitMillis() { return windowAverageWaitMillis; }
+        public void setWindowAverageWaitMillis(long windowAverageWaitMillis) { this.windowAverageWaitMillis = windowAverageWaitMillis; }
+
+        public long getFreeMemoryMb() { return freeMemoryMb; }
+        public void setFreeMemoryMb(long freeMemoryMb) { this.freeMemoryMb = freeMemoryMb; }
+
+        public double getCpuLoad() { return cpuLoad; }
+        public void setCpuLoad(double cpuLoad) { this.cpuLoad = cpuLoad; }
+
+        public List<SizingDecision> getRecentDecisions() { return recentDecisions; }
+        public void setRecentDecisions(List<SizingDecision> recentDecisions) { this.recentDecisions = recentDecisions; }
+    }
+}
@@ -0,0 +1,47 @@
+package com.dlocal.slackshot.service;
+
+import org.openqa.selenium.chrome.ChromeDriver;
+
+/**
+ * A running Chrome process tree. In process mode each pooled driver owns one;
+ * in context mode several pooled drivers share one, each in its own browser
+ * context.
+ */
+public class BrowserInstance {
+
+    private final String userDataDir;
+    private final ChromeDriver hostDriver;
+    private final String debuggerAddress;
+    private int openContexts;
+    private volatile long processTreeRoot = -1;
+    private volatile long rssBytes = -1;
+    private volatile boolean draining;
+
+    BrowserInstance(String userDataDir, ChromeDriver hostDriver, String debuggerAddress) {
+        this.userDataDir = userDataDir;
+        this.hostDriver = hostDriver;
+        this.debuggerAddress = debuggerAddress;
+    }
+
+    public String getUserDataDir() { return userDataDir; }
+    public long getRssBytes() { return rssBytes; }
+
+    /**
+     * True once the browser went over a retirement limit: its drivers are
+     * retired and no new contexts are opened in it.
+     */
+    public boolean isDraining() { return draining; }
+
+    ChromeDriver getHostDriver() { return hostDriver; }
+    String getDebuggerAddress() { return debuggerAddress; }
+
+    int getOpenContexts() { return openContexts; }
+    void setOpenContexts(int openContexts) { this.openContexts = openContexts; }
+
+    long getProcessTreeRoot() { return processTreeRoot; }
+    void setProcessTreeRoot(long processTreeRoot) { this.processTreeRoot = processTreeRoot; }
+
+    void setRssBytes(long rssBytes) { this.rssBytes = rssBytes; }
+
+    void drain() { this.draining = true; }
+}
@@ -0,0 +1,175 @@
+package com.dlocal.slackshot.service;
+
+import com.dlocal.slackshot.model.Screenshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most one capture per site at a time. Callers asking for a site that
+ * is already being captured, whether on demand or from a scheduled task, wait
+ * for that capture and get its screenshot instead of queuing another.
+ */
+@Service
+public class CaptureCoordinator {
+
+    private static final Logger log = LoggerFactory.getLogger(CaptureCoordinator.class);
+
+    @Value("${capture.shared-wait-seconds:120}")
+    private long sharedWaitSeconds;
+
+    @Autowired
+    private CaptureExecutor captureExecutor;
+
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong captures = new AtomicLong(0);
+    private final AtomicLong duplicatesSaved = new AtomicLong(0);
+    private final AtomicLong freshHits = new AtomicLong(0);
+    private final AtomicLong promotions = new AtomicLong(0);
+
+    /**
+     * Start the capture for the site, or join the capture already in flight for
+     * it. Only the first caller calls start, so only it takes a slot on the
+     * capture executor and a browser; the others just wait on its result, for
+     * at most capture.shared-wait-seconds.
+     *
+     * A caller joining a capture that is still queued in a lower class moves it
+     * up to its own class, so an on-demand request never waits out the head
+     * start of a scheduled or backfill capture it happened to join.
+     *
+     * @param start submits the capture to the capture executor in the given class
+     * @throws CaptureRejectedException if this caller had to start a capture
+     *         and the capture executor did not admit it
+     */
+    public CompletableFuture<Screenshot> capture(String siteName, CaptureExecutor.Priority priority,
+                                                 Supplier<CompletableFuture<Screenshot>> start) {
+        InFlight mine = new InFlight(priority);
+        InFlight running = inFlight.putIfAbsent(siteName, mine);
+        if (running != null) {
+            duplicatesSaved.incrementAndGet();
+            log.debug("Joining capture already in flight for site: {}", siteName);
+            running.raise(priority);
+            return running.result.copy().orTimeout(sharedWaitSeconds, TimeUnit.SECONDS);
+        }
+
+        captures.incrementAndGet();
+        try {
+            CompletableFuture<Screenshot> queued = start.get();
+            mine.queued(queued);
+            queued.whenComplete((screenshot, error) -> {
+                inFlight.remove(siteName, mine);
+                if (error != null) {
+                    mine.result.completeExceptionally(error);
+                } else {
+                    mine.result.complete(screenshot);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(siteName, mine);
+            mine.result.completeExceptionally(e);
+            throw e;
+        }
+        return mine.result.copy();
+    }
+
+    /**
+     * Wait for a capture returned by {@link #capture}, rethrowing its failure.
+     */
+    public Screenshot await(String siteName, CompletableFuture<Screenshot> capture) {
+        try {
+            return capture.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                throw new RuntimeException("Timed out waiting for capture of site: " + siteName, cause);
+            }
+            throw cause instanceof RuntimeException ? (RuntimeException) cause
+                : new RuntimeException("Failed to take screenshot", cause);
+        }
+    }
+
+    /**
+     * Count a request that was served from a stored screenshot young enough
+     * for its max age.
+     */
+    public void recordFreshHit() {
+        freshHits.incrementAndGet();
+    }
+
+    public CaptureStats getStats() {
+        CaptureStats stats = new CaptureStats();
+        stats.setCaptures(captures.get());
+        stats.setDuplicatesSaved(duplicatesSaved.get());
+        stats.setFreshHits(freshHits.get());
+        stats.setPromotions(promotions.get());
+        stats.setInFlight(inFlight.size());
+        return stats;
+    }
+
+    /**
+     * A capture in flight for one site: its result, the executor future while
+     * it is being submitted, and the most urgent class any caller asked for.
+     */
+    private class InFlight {
+        private final CompletableFuture<Screenshot> result = new CompletableFuture<>();
+        private CaptureExecutor.Priority priority;
+        private CompletableFuture<Screenshot> queued;
+
+        InFlight(CaptureExecutor.Priority priority) {
+            this.priority = priority;
+        }
+
+        synchronized void queued(CompletableFuture<Screenshot> queued) {
+            this.queued = queued;
+            promote();
+        }
+
+        synchronized void raise(CaptureExecutor.Priority priority) {
+            if (priority.compareTo(this.priority) < 0) {
+                this.priority = priority;
+                promote();
+            }
+        }
+
+        // A caller may have raised the class before the leader finished submitting
+        private void promote() {
+            if (queued != null && captureExecutor.promote(queued, priority)) {
+                promotions.incrementAndGet();
+            }
+        }
+    }
+
+    public static class CaptureStats {
+        private long captures;
+        private long duplicatesSaved;
+        private long freshHits;
+        private long promotions;
+        private int inFlight;
+
+        public long getCaptures() { return captures; }
+        public void setCaptures(long captures) { this.captures = captures; }
+
+        public long getDuplicatesSaved() { return duplicatesSaved; }
+        public void setDuplicatesSaved(long duplicatesSaved) { this.duplicatesSaved = duplicatesSaved; }
+
+        public long getFreshHits() { return freshHits; }
+        public void setFreshHits(long freshHits) { this.freshHits = freshHits; }
+
+        public long getPromotions() { return promotions; }
+        public void setPromotions(long promotions) { this.promotions = promotions; }
+
+        public int getInFlight() { return inFlight; }
+        public void setInFlight(int inFlight) { this.inFlight = inFlight; }
+    }
+}
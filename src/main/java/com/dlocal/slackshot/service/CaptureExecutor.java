@@ -0,0 +1,400 @@
+package com.dlocal.slackshot.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Orders every capture by class before it reaches webDriverTaskExecutor.
+ * Each class has its own FIFO queue and captures are started only while fewer
+ * are running than the WebDriver pool capacity, so the next free driver goes
+ * to the most urgent waiting capture.
+ *
+ * A lower class is held back by a fixed head start per class rather than
+ * absolutely: a waiting capture is picked by queue time minus its class's
+ * head start, so a scheduled capture that has waited longer than the head
+ * start beyond the oldest interactive one goes first and low classes never
+ * starve.
+ *
+ * Each class queue is bounded. A capture that does not fit is rejected at
+ * once with a retry estimate instead of blocking the caller, so callers can
+ * answer 429 or defer to a later slot.
+ */
+@Service
+public class CaptureExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(CaptureExecutor.class);
+
+    public enum Priority {
+        INTERACTIVE,
+        SCHEDULED,
+        BACKFILL
+    }
+
+    @Autowired
+    private WebDriverManager webDriverManager;
+
+    @Autowired
+    @Qualifier("webDriverTaskExecutor")
+    private Executor webDriverTaskExecutor;
+
+    @Value("${capture.scheduler.aging.scheduled-seconds:30}")
+    private long scheduledHeadStartSeconds;
+
+    @Value("${capture.scheduler.aging.backfill-seconds:120}")
+    private long backfillHeadStartSeconds;
+
+    @Value("${capture.scheduler.queue-capacity.interactive:20}")
+    private int interactiveQueueCapacity;
+
+    @Value("${capture.scheduler.queue-capacity.scheduled:50}")
+    private int scheduledQueueCapacity;
+
+    @Value("${capture.scheduler.queue-capacity.backfill:50}")
+    private int backfillQueueCapacity;
+
+    @Value("${capture.scheduler.max-retry-after-seconds:300}")
+    private long maxRetryAfterSeconds;
+
+    private final Map<Priority, ArrayDeque<QueuedCapture<?>>> queues = new EnumMap<>(Priority.class);
+    private final Map<Priority, ClassMetrics> metrics = new EnumMap<>(Priority.class);
+    private final Map<Priority, Long> headStartNanos = new EnumMap<>(Priority.class);
+    private final Map<Priority, Integer> queueCapacities = new EnumMap<>(Priority.class);
+    private final AtomicLong completed = new AtomicLong(0);
+    private final AtomicLong totalRunMillis = new AtomicLong(0);
+    private int running;
+
+    @PostConstruct
+    public void init() {
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new ArrayDeque<>());
+            metrics.put(priority, new ClassMetrics());
+        }
+        headStartNanos.put(Priority.INTERACTIVE, 0L);
+        headStartNanos.put(Priority.SCHEDULED, TimeUnit.SECONDS.toNanos(scheduledHeadStartSeconds));
+        headStartNanos.put(Priority.BACKFILL, TimeUnit.SECONDS.toNanos(backfillHeadStartSeconds));
+        queueCapacities.put(Priority.INTERACTIVE, interactiveQueueCapacity);
+        queueCapacities.put(Priority.SCHEDULED, scheduledQueueCapacity);
+        queueCapacities.put(Priority.BACKFILL, backfillQueueCapacity);
+        webDriverManager.addCapacityListener(capacity -> dispatch());
+    }
+
+    /**
+     * Queue a capture in the given class. The future completes with its result
+     * once a driver slot was free and the capture ran.
+     *
+     * @throws CaptureRejectedException if the class queue is full
+     */
+    public <T> CompletableFuture<T> submit(Priority priority, String description, Callable<T> capture) {
+        QueuedCapture<T> queued = new QueuedCapture<>(priority, description, capture);
+        synchronized (this) {
+            ArrayDeque<QueuedCapture<?>> queue = queues.get(priority);
+            if (queue.size() >= queueCapacities.get(priority)) {
+                metrics.get(priority).rejected.incrementAndGet();
+                long retryAfter = estimateRetryAfterSeconds();
+                log.warn("{} capture queue full ({}), rejecting: {}", priority, queue.size(), description);
+                throw new CaptureRejectedException(priority + " capture queue is full", retryAfter);
+            }
+            queue.addLast(queued);
+            metrics.get(priority).enqueued.incrementAndGet();
+        }
+        log.debug("Queued {} capture: {}", priority, description);
+        dispatch();
+        return queued.future;
+    }
+
+    /**
+     * Move a capture that is still waiting up to a higher class, keeping its
+     * place by queue time there. Used when a more urgent caller joins a
+     * capture queued for a lower class. Does nothing once the capture has
+     * started or if it already waits in that class or a higher one.
+     *
+     * @return whether the capture was moved
+     */
+    public boolean promote(CompletableFuture<?> future, Priority priority) {
+        synchronized (this) {
+            QueuedCapture<?> found = null;
+            for (ArrayDeque<QueuedCapture<?>> queue : queues.values()) {
+                for (QueuedCapture<?> queued : queue) {
+                    if (queued.future == future) {
+                        found = queued;
+                    }
+                }
+            }
+            if (found == null || found.priority.compareTo(priority) <= 0) {
+                return false;
+            }
+            queues.get(found.priority).remove(found);
+            metrics.get(found.priority).promoted.incrementAndGet();
+            log.debug("Promoted {} capture to {}: {}", found.priority, priority, found.description);
+            found.priority = priority;
+
+            // The promoted capture may have waited longer than those already in the class
+            ArrayDeque<QueuedCapture<?>> target = queues.get(priority);
+            ArrayDeque<QueuedCapture<?>> merged = new ArrayDeque<>(target.size() + 1);
+            boolean placed = false;
+            for (QueuedCapture<?> queued : target) {
+                if (!placed && found.enqueuedAt < queued.enqueuedAt) {
+                    merged.addLast(found);
+                    placed = true;
+                }
+                merged.addLast(queued);
+            }
+            if (!placed) {
+                merged.addLast(found);
+            }
+            queues.put(priority, merged);
+        }
+        dispatch();
+        return true;
+    }
+
+    /**
+     * Record that a capture of the given class was pushed to a later slot
+     * instead of being queued.
+     */
+    public void recordDeferred(Priority priority) {
+        metrics.get(priority).deferred.incrementAndGet();
+    }
+
+    /**
+     * Time for everything waiting and running to drain at the average capture
+     * duration, spread over the pool's driver slots.
+     */
+    public synchronized long estimateRetryAfterSeconds() {
+        long done = completed.get();
+        long averageRunMillis = done > 0 ? totalRunMillis.get() / done : 10000;
+        int waiting = running;
+        for (ArrayDeque<QueuedCapture<?>> queue : queues.values()) {
+            waiting += queue.size();
+        }
+        long slots = Math.max(webDriverManager.getCapacity(), 1);
+        long seconds = (long) Math.ceil(waiting * averageRunMillis / (double) slots / 1000);
+        return Math.max(1, Math.min(seconds, maxRetryAfterSeconds));
+    }
+
+    /**
+     * Captures started and their total queue time in milliseconds, for callers
+     * that work out the average over their own window.
+     */
+    public long[] getWaitTotals() {
+        long started = 0;
+        long queueMillis = 0;
+        for (ClassMetrics m : metrics.values()) {
+            started += m.started.get();
+            queueMillis += m.totalQueueMillis.get();
+        }
+        return new long[] { started, queueMillis };
+    }
+
+    /**
+     * Captures waiting for a driver slot across all classes.
+     */
+    public synchronized int getWaitingCaptures() {
+        int waiting = 0;
+        for (ArrayDeque<QueuedCapture<?>> queue : queues.values()) {
+            waiting += queue.size();
+        }
+        return waiting;
+    }
+
+    private synchronized void dispatch() {
+        QueuedCapture<?> next;
+        while (running < webDriverManager.getCapacity() && (next = pollNext()) != null) {
+            running++;
+            QueuedCapture<?> capture = next;
+            long queuedNanos = System.nanoTime() - capture.enqueuedAt;
+            metrics.get(capture.priority).recordStart(TimeUnit.NANOSECONDS.toMillis(queuedNanos));
+            try {
+                webDriverTaskExecutor.execute(() -> run(capture));
+            } catch (RuntimeException e) {
+                running--;
+                log.error("Could not start {} capture: {}", capture.priority, capture.description, e);
+                capture.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * The waiting capture with the largest queue time after its class's head
+     * start is taken off. Ties go to the higher class.
+     */
+    private QueuedCapture<?> pollNext() {
+        long now = System.nanoTime();
+        Priority best = null;
+        long bestScore = Long.MIN_VALUE;
+        for (Priority priority : Priority.values()) {
+            QueuedCapture<?> head = queues.get(priority).peekFirst();
+            if (head == null) {
+                continue;
+            }
+            long score = (now - head.enqueuedAt) - headStartNanos.get(priority);
+            if (score > bestScore) {
+                best = priority;
+                bestScore = score;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        if (best != Priority.INTERACTIVE && !queues.get(Priority.INTERACTIVE).isEmpty()) {
+            metrics.get(best).aged.incrementAndGet();
+        }
+        return queues.get(best).pollFirst();
+    }
+
+    private <T> void run(QueuedCapture<T> capture) {
+        long startedAt = System.nanoTime();
+        try {
+            capture.future.complete(capture.task.call());
+        } catch (Exception e) {
+            capture.future.completeExceptionally(e);
+        } finally {
+            completed.incrementAndGet();
+            totalRunMillis.addAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            synchronized (this) {
+                running--;
+            }
+            dispatch();
+        }
+    }
+
+    public synchronized SchedulerStats getStats() {
+        SchedulerStats stats = new SchedulerStats();
+        stats.setRunning(running);
+        stats.setCapacity(webDriverManager.getCapacity());
+        stats.setAverageRunMillis(completed.get() > 0 ? totalRunMillis.get() / completed.get() : 0);
+        Map<String, ClassStats> classes = new LinkedHashMap<>();
+        for (Priority priority : Priority.values()) {
+            ClassMetrics m = metrics.get(priority);
+            ClassStats classStats = new ClassStats();
+            classStats.setQueued(queues.get(priority).size());
+            classStats.setQueueCapacity(queueCapacities.get(priority));
+            classStats.setEnqueued(m.enqueued.get());
+            classStats.setStarted(m.started.get());
+            classStats.setAged(m.aged.get());
+            classStats.setRejected(m.rejected.get());
+            classStats.setDeferred(m.deferred.get());
+            classStats.setPromoted(m.promoted.get());
+            classStats.setAverageQueueMillis(m.started.get() > 0 ? m.totalQueueMillis.get() / m.started.get() : 0);
+            classStats.setMaxQueueMillis(m.maxQueueMillis.get());
+            QueuedCapture<?> head = queues.get(priority).peekFirst();
+            classStats.setOldestWaitingMillis(head != null
+                ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - head.enqueuedAt) : 0);
+            classes.put(priority.name(), classStats);
+        }
+        stats.setClasses(classes);
+        return stats;
+    }
+
+    private static class QueuedCapture<T> {
+        private Priority priority;
+        private final String description;
+        private final Callable<T> task;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        QueuedCapture(Priority priority, String description, Callable<T> task) {
+            this.priority = priority;
+            this.description = description;
+            this.task = task;
+        }
+    }
+
+    private static class ClassMetrics {
+        private final AtomicLong enqueued = new AtomicLong(0);
+        private final AtomicLong started = new AtomicLong(0);
+        private final AtomicLong aged = new AtomicLong(0);
+        private final AtomicLong rejected = new AtomicLong(0);
+        private final AtomicLong deferred = new AtomicLong(0);
+        private final AtomicLong promoted = new AtomicLong(0);
+        private final AtomicLong totalQueueMillis = new AtomicLong(0);
+        private final AtomicLong maxQueueMillis = new AtomicLong(0);
+
+        void recordStart(long queueMillis) {
+            started.incrementAndGet();
+            totalQueueMillis.addAndGet(queueMillis);
+            maxQueueMillis.accumulateAndGet(queueMillis, Math::max);
+        }
+    }
+
+    public static class SchedulerStats {
+        private int running;
+        private int capacity;
+        private long averageRunMillis;
+        private Map<String, ClassStats> classes;
+
+        public int getRunning() { return running; }
+        public void setRunning(int running) { this.running = running; }
+
+        public int getCapacity() { return capacity; }
+        public void setCapacity(int capacity) { this.capacity = capacity; }
+
+        public long getAverageRunMillis() { return averageRunMillis; }
+        public void setAverageRunMillis(long averageRunMillis) { this.averageRunMillis = averageRunMillis; }
+
+        public Map<String, ClassStats> getClasses() { return classes; }
+        public void setClasses(Map<String, ClassStats> classes) { this.classes = classes; }
+    }
+
+    public static class ClassStats {
+        private int queued;
+        private int queueCapacity;
+        private long enqueued;
+        private long started;
+        private long aged;
+        private long rejected;
+        private long deferred;
+        private long promoted;
+        private long averageQueueMillis;
+        private long maxQueueMillis;
+        private long oldestWaitingMillis;
+
+        public int getQueued() { return queued; }
+        public void setQueued(int queued) { this.queued = queued; }
+
+        public int getQueueCapacity() { return queueCapacity; }
+        public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+        public long getEnqueued() { return enqueued; }
+        public void setEnqueued(long enqueued) { this.enqueued = enqueued; }
+
+        public long getStarted() { return started; }
+        public void setStarted(long started) { this.started = started; }
+
+        public long getAged() { return aged; }
+        public void setAged(long aged) { this.aged = aged; }
+
+        public long getRejected() { return rejected; }
+        public void setRejected(long rejected) { this.rejected = rejected; }
+
+        public long getDeferred() { return deferred; }
+        public void setDeferred(long deferred) { this.deferred = deferred; }
+
+        public long getPromoted() { return promoted; }
+        public void setPromoted(long promoted) { this.promoted = promoted; }
+
+        public long getAverageQueueMillis() { return averageQueueMillis; }
+        public void setAverageQueueMillis(long averageQueueMillis) { this.averageQueueMillis = averageQueueMillis; }
+
+        public long getMaxQueueMillis() { return maxQueueMillis; }
+        public void setMaxQueueMillis(long maxQueueMillis) { this.maxQueueMillis = maxQueueMillis; }
+
+        public long getOldestWaitingMillis() { return oldestWaitingMillis; }
+        public void setOldestWaitingMillis(long oldestWaitingMillis) { this.oldestWaitingMillis = oldestWaitingMillis; }
+    }
+}
@@ -0,0 +1,73 @@
+package com.dlocal.slackshot.service;
+
+import com.dlocal.slackshot.model.Screenshot;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A capture requested through the jobs API, kept in memory until it expires.
+ */
+public class CaptureJob {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    private final String id;
+    private final String siteName;
+    private final LocalDateTime submittedAt;
+    private volatile Status status = Status.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile Long screenshotId;
+    private volatile String error;
+    private final CompletableFuture<CaptureJob> completion = new CompletableFuture<>();
+
+    CaptureJob(String id, String siteName, LocalDateTime submittedAt) {
+        this.id = id;
+        this.siteName = siteName;
+        this.submittedAt = submittedAt;
+    }
+
+    void start() {
+        startedAt = LocalDateTime.now();
+        status = Status.RUNNING;
+    }
+
+    void succeed(Screenshot screenshot) {
+        screenshotId = screenshot.getId();
+        finish(Status.SUCCEEDED);
+    }
+
+    void fail(String error) {
+        this.error = error;
+        finish(Status.FAILED);
+    }
+
+    private void finish(Status status) {
+        finishedAt = LocalDateTime.now();
+        this.status = status;
+        completion.complete(this);
+    }
+
+    public boolean isDone() {
+        return status == Status.SUCCEEDED || status == Status.FAILED;
+    }
+
+    public String getId() { return id; }
+    public String getSiteName() { return siteName; }
+    public LocalDateTime getSubmittedAt() { return submittedAt; }
+    public Status getStatus() { return status; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public Long getScreenshotId() { return screenshotId; }
+    public String getError() { return error; }
+
+    @JsonIgnore
+    public CompletableFuture<CaptureJob> getCompletion() { return completion; }
+}
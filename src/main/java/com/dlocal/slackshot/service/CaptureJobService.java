@@ -0,0 +1,177 @@
+package com.dlocal.slackshot.service;
+
+import com.dlocal.slackshot.model.Screenshot;
+import com.dlocal.slackshot.model.Site;
+import com.dlocal.slackshot.repository.SiteRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accepts capture requests without holding the request thread. Jobs run as
+ * interactive captures on the CaptureExecutor, at most queue-capacity of them
+ * outstanding at once. Finished jobs are kept for polling until they expire.
+ */
+@Service
+public class CaptureJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(CaptureJobService.class);
+
+    @Autowired
+    private ScreenshotService screenshotService;
+
+    @Autowired
+    private SiteRepository siteRepository;
+
+    @Autowired
+    private CaptureExecutor captureExecutor;
+
+    @Value("${capture.jobs.queue-capacity:50}")
+    private int queueCapacity;
+
+    @Value("${capture.jobs.retention-minutes:15}")
+    private long retentionMinutes;
+
+    private final ConcurrentHashMap<String, CaptureJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger outstanding = new AtomicInteger(0);
+
+    private final AtomicLong submitted = new AtomicLong(0);
+    private final AtomicLong rejected = new AtomicLong(0);
+    private final AtomicLong succeeded = new AtomicLong(0);
+    private final AtomicLong failed = new AtomicLong(0);
+
+    private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "CaptureJob-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        cleaner.scheduleWithFixedDelay(this::expireJobs, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleaner.shutdownNow();
+    }
+
+    /**
+     * Queue a capture of the site.
+     *
+     * @throws CaptureRejectedException if too many jobs are outstanding
+     */
+    public CaptureJob submit(String siteName) {
+        Site site = siteRepository.findByName(siteName)
+            .orElseThrow(() -> new RuntimeException("Site not found: " + siteName));
+        if (outstanding.incrementAndGet() > queueCapacity) {
+            outstanding.decrementAndGet();
+            rejected.incrementAndGet();
+            log.warn("Capture job queue full, rejecting capture of site: {}", siteName);
+            throw new CaptureRejectedException("Capture job queue is full", captureExecutor.estimateRetryAfterSeconds());
+        }
+
+        CaptureJob job = new CaptureJob(UUID.randomUUID().toString(), siteName, LocalDateTime.now());
+        try {
+            // A job for a site already being captured shares that capture
+            screenshotService.captureAsync(site, CaptureExecutor.Priority.INTERACTIVE,
+                    "job " + job.getId() + " for " + siteName, job::start)
+                .whenComplete((screenshot, error) -> finish(job, screenshot, error));
+        } catch (CaptureRejectedException e) {
+            outstanding.decrementAndGet();
+            rejected.incrementAndGet();
+            throw e;
+        }
+        jobs.put(job.getId(), job);
+        submitted.incrementAndGet();
+        log.info("Queued capture job {} for site: {}", job.getId(), siteName);
+        return job;
+    }
+
+    public Optional<CaptureJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    private void finish(CaptureJob job, Screenshot screenshot, Throwable error) {
+        outstanding.decrementAndGet();
+        if (error == null) {
+            job.succeed(screenshot);
+            succeeded.incrementAndGet();
+            log.info("Capture job {} finished for site: {}", job.getId(), job.getSiteName());
+            return;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        job.fail(cause.getMessage());
+        failed.incrementAndGet();
+        log.error("Capture job {} failed for site: {}", job.getId(), job.getSiteName(), cause);
+    }
+
+    private void expireJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.isDone() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    public JobStats getStats() {
+        JobStats stats = new JobStats();
+        long running = jobs.values().stream().filter(job -> job.getStatus() == CaptureJob.Status.RUNNING).count();
+        stats.setQueued(Math.max(outstanding.get() - (int) running, 0));
+        stats.setRunning((int) running);
+        stats.setQueueCapacity(queueCapacity);
+        stats.setTrackedJobs(jobs.size());
+        stats.setSubmitted(submitted.get());
+        stats.setRejected(rejected.get());
+        stats.setSucceeded(succeeded.get());
+        stats.setFailed(failed.get());
+        return stats;
+    }
+
+    public static class JobStats {
+        private int queued;
+        private int running;
+        private int queueCapacity;
+        private int trackedJobs;
+        private long submitted;
+        private long rejected;
+        private long succeeded;
+        private long failed;
+
+        public int getQueued() { return queued; }
+        public void setQueued(int queued) { this.queued = queued; }
+
+        public int getRunning() { return running; }
+        public void setRunning(int running) { this.running = running; }
+
+        public int getQueueCapacity() { return queueCapacity; }
+        public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+        public int getTrackedJobs() { return trackedJobs; }
+        public void setTrackedJobs(int trackedJobs) { this.trackedJobs = trackedJobs; }
+
+        public long getSubmitted() { return submitted; }
+        public void setSubmitted(long submitted) { this.submitted = submitted; }
+
+        public long getRejected() { return rejected; }
+        public void setRejected(long rejected) { this.rejected = rejected; }
+
+        public long getSucceeded() { return succeeded; }
+        public void setSucceeded(long succeeded) { this.succeeded = succeeded; }
+
+        public long getFailed() { return failed; }
+        public void setFailed(long failed) { this.failed = failed; }
+    }
+}
@@ -0,0 +1,21 @@
+package com.dlocal.slackshot.service;
+
+/**
+ * Thrown when a capture is not admitted because its class's queue is full.
+ * Carries how long the caller should wait before trying again.
+ */
+public class CaptureRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public CaptureRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
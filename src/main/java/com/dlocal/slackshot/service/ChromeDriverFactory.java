@@ -0,0 +1,216 @@
+package com.dlocal.slackshot.service;
+
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts and stops the browsers behind the WebDriver pool.
+ *
+ * In process mode every pooled driver is its own Chrome. In context mode one
+ * Chrome serves up to webdriver.pool.contexts-per-browser pooled drivers: each
+ * gets an isolated browser context (separate cookies and storage) with one tab,
+ * driven by a chromedriver session attached to that tab through the browser's
+ * debugger address.
+ */
+@Component
+public class ChromeDriverFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(ChromeDriverFactory.class);
+
+    public enum PoolMode {
+        PROCESS,
+        CONTEXT
+    }
+
+    @Value("${webdriver.pool.mode:process}")
+    private String mode;
+
+    @Value("${webdriver.pool.contexts-per-browser:4}")
+    private int contextsPerBrowser;
+
+    private final List<BrowserInstance> sharedBrowsers = new ArrayList<>();
+
+    public PoolMode getMode() {
+        return PoolMode.valueOf(mode.trim().toUpperCase());
+    }
+
+    public PooledDriver create(long id) {
+        return getMode() == PoolMode.CONTEXT ? createContext(id) : createProcess(id);
+    }
+
+    public void destroy(PooledDriver pooled) {
+        quit(pooled.getDriver());
+        if (pooled.getBrowserContextId() != null) {
+            BrowserInstance browser = pooled.getBrowser();
+            try {
+                synchronized (browser) {
+                    browser.getHostDriver().executeCdpCommand("Target.disposeBrowserContext",
+                        Map.of("browserContextId", pooled.getBrowserContextId()));
+                }
+            } catch (Exception e) {
+                log.warn("Error disposing browser context {}", pooled.getBrowserContextId(), e);
+            }
+            releaseSharedBrowser(browser);
+        }
+    }
+
+    public synchronized void shutdown() {
+        sharedBrowsers.forEach(browser -> quit(browser.getHostDriver()));
+        sharedBrowsers.clear();
+    }
+
+    private PooledDriver createProcess(long id) {
+        ChromeDriver driver = new ChromeDriver(browserOptions());
+        driver.manage().window().maximize();
+        return new PooledDriver(id, driver, Instant.now(), new BrowserInstance(userDataDir(driver), null, null), null);
+    }
+
+    private PooledDriver createContext(long id) {
+        BrowserInstance browser = reserveSharedBrowser();
+        String contextId = null;
+        ChromeDriver driver = null;
+        try {
+            String targetId;
+            synchronized (browser) {
+                ChromeDriver host = browser.getHostDriver();
+                contextId = (String) host.executeCdpCommand("Target.createBrowserContext",
+                    Map.of("disposeOnDetach", false)).get("browserContextId");
+                targetId = (String) host.executeCdpCommand("Target.createTarget",
+                    Map.of("url", "about:blank", "browserContextId", contextId)).get("targetId");
+            }
+
+            ChromeOptions options = new ChromeOptions();
+            options.setExperimentalOption("debuggerAddress", browser.getDebuggerAddress());
+            driver = new ChromeDriver(options);
+            driver.switchTo().window(findWindowHandle(driver, targetId));
+            driver.manage().window().maximize();
+
+            log.debug("Opened browser context {} in shared browser {}", contextId, browser.getDebuggerAddress());
+            return new PooledDriver(id, driver, Instant.now(), browser, contextId);
+        } catch (RuntimeException e) {
+            quit(driver);
+            if (contextId != null) {
+                try {
+                    synchronized (browser) {
+                        browser.getHostDriver().executeCdpCommand("Target.disposeBrowserContext",
+                            Map.of("browserContextId", contextId));
+                    }
+                } catch (Exception disposeError) {
+                    log.debug("Error disposing browser context {}", contextId, disposeError);
+                }
+            }
+            releaseSharedBrowser(browser);
+            throw e;
+        }
+    }
+
+    /**
+     * ChromeDriver names windows after their DevTools target id; older
+     * releases add a prefix to it.
+     */
+    private String findWindowHandle(ChromeDriver driver, String targetId) {
+        for (String handle : driver.getWindowHandles()) {
+            if (handle.endsWith(targetId)) {
+                return handle;
+            }
+        }
+        throw new RuntimeException("Tab " + targetId + " not visible to attached WebDriver session");
+    }
+
+    /**
+     * Pick a running browser with a free context slot, starting one if needed,
+     * and count the new context against it.
+     */
+    private synchronized BrowserInstance reserveSharedBrowser() {
+        for (BrowserInstance browser : sharedBrowsers) {
+            if (!browser.isDraining() && browser.getOpenContexts() < contextsPerBrowser) {
+                browser.setOpenContexts(browser.getOpenContexts() + 1);
+                return browser;
+            }
+        }
+
+        ChromeDriver host = new ChromeDriver(browserOptions());
+        BrowserInstance browser = new BrowserInstance(userDataDir(host), host, debuggerAddress(host));
+        browser.setOpenContexts(1);
+        sharedBrowsers.add(browser);
+        log.info("Started shared browser at {} for up to {} contexts", browser.getDebuggerAddress(), contextsPerBrowser);
+        return browser;
+    }
+
+    private void releaseSharedBrowser(BrowserInstance browser) {
+        boolean lastContext;
+        synchronized (this) {
+            browser.setOpenContexts(browser.getOpenContexts() - 1);
+            lastContext = browser.getOpenContexts() <= 0;
+            if (lastContext) {
+                sharedBrowsers.remove(browser);
+            }
+        }
+        if (lastContext) {
+            log.info("Closing shared browser at {}, no contexts left", browser.getDebuggerAddress());
+            quit(browser.getHostDriver());
+        }
+    }
+
+    private ChromeOptions browserOptions() {
+        ChromeOptions options = new ChromeOptions();
+        
+        List<String> args = new ArrayList<>(List.of(
+            "--no-sandbox",
+            "--disable-dev-shm-usage",
+            "--disable-gpu",
+            "--disable-extensions",
+            "--disable-plugins",
+            "--headless",
+            "--remote-debugging-port=0"
+        ));
+        
+        options.addArguments(args);
+        return options;
+    }
+
+    /**
+     * ChromeDriver reports the temporary profile directory it launched Chrome
+     * with; it is what identifies the browser process under /proc.
+     */
+    private String userDataDir(HasCapabilities driver) {
+        Object chrome = driver.getCapabilities().getCapability("chrome");
+        if (chrome instanceof Map) {
+            Object dir = ((Map<?, ?>) chrome).get("userDataDir");
+            return dir != null ? dir.toString() : null;
+        }
+        return null;
+    }
+
+    private String debuggerAddress(HasCapabilities driver) {
+        Object chromeOptions = driver.getCapabilities().getCapability("goog:chromeOptions");
+        if (chromeOptions instanceof Map) {
+            Object address = ((Map<?, ?>) chromeOptions).get("debuggerAddress");
+            if (address != null) {
+                return address.toString();
+            }
+        }
+        throw new RuntimeException("Chrome did not report a debugger address");
+    }
+
+    private void quit(WebDriver driver) {
+        try {
+            if (driver != null) {
+                driver.quit();
+            }
+        } catch (Exception e) {
+            log.error("Error closing WebDriver", e);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.dlocal.slackshot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Reads memory usage of the chromedriver/Chrome process tree behind a pooled
+ * driver from /proc. Only available on Linux; elsewhere every lookup returns -1.
+ */
+@Component
+public class ChromeProcessMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ChromeProcessMonitor.class);
+
+    private static final Path PROC = Paths.get("/proc");
+
+    public boolean isSupported() {
+        return Files.isDirectory(PROC.resolve("self"));
+    }
+
+    /**
+     * Find the root of the process tree for the browser started with the given
+     * profile directory: the chromedriver that launched it when there is one,
+     * otherwise the browser process itself.
+     */
+    public long findProcessTreeRoot(String userDataDir) {
+        if (userDataDir == null || !isSupported()) {
+            return -1;
+        }
+        String profileArg = "--user-data-dir=" + userDataDir;
+        for (long pid : listPids()) {
+            String cmdline = readCmdline(pid);
+            if (cmdline.contains(profileArg) && !cmdline.contains("--type=")) {
+                long parent = readParentPid(pid);
+                if (parent > 0 && readFile(PROC.resolve(parent + "/comm")).trim().startsWith("chromedriver")) {
+                    return parent;
+                }
+                return pid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sum of VmRSS over the given process and all of its descendants, in bytes.
+     */
+    public long getTreeRssBytes(long rootPid) {
+        if (rootPid <= 0 || !Files.isDirectory(PROC.resolve(String.valueOf(rootPid)))) {
+            return -1;
+        }
+
+        Map<Long, List<Long>> children = new HashMap<>();
+        for (long pid : listPids()) {
+            long parent = readParentPid(pid);
+            if (parent > 0) {
+                children.computeIfAbsent(parent, key -> new ArrayList<>()).add(pid);
+            }
+        }
+
+        long totalKb = 0;
+        Deque<Long> pending = new ArrayDeque<>();
+        pending.push(rootPid);
+        while (!pending.isEmpty()) {
+            long pid = pending.pop();
+            totalKb += readRssKb(pid);
+            pending.addAll(children.getOrDefault(pid, List.of()));
+        }
+        return totalKb * 1024;
+    }
+
+    private List<Long> listPids() {
+        List<Long> pids = new ArrayList<>();
+        try (Stream<Path> entries = Files.list(PROC)) {
+            entries.map(path -> path.getFileName().toString())
+                .filter(name -> !name.isEmpty() && name.chars().allMatch(Character::isDigit))
+                .forEach(name -> pids.add(Long.parseLong(name)));
+        } catch (IOException e) {
+            log.debug("Unable to list processes", e);
+        }
+        return pids;
+    }
+
+    private String readCmdline(long pid) {
+        return readFile(PROC.resolve(pid + "/cmdline")).replace('\0', ' ');
+    }
+
+    private long readParentPid(long pid) {
+        String stat = readFile(PROC.resolve(pid + "/stat"));
+        int commEnd = stat.lastIndexOf(')');
+        if (commEnd < 0) {
+            return -1;
+        }
+        String[] fields = stat.substring(commEnd + 2).split(" ");
+        try {
+            return fields.length > 1 ? Long.parseLong(fields[1]) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private long readRssKb(long pid) {
+        for (String line : readFile(PROC.resolve(pid + "/status")).split("\n")) {
+            if (line.startsWith("VmRSS:")) {
+                String value = line.substring("VmRSS:".length()).trim();
+                try {
+                    return Long.parseLong(value.split("\\s+")[0]);
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private String readFile(Path path) {
+        try {
+            return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            // The process exited between listing and reading
+            return "";
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.dlocal.slackshot.service;
+
+import com.dlocal.slackshot.model.CaptureOptions;
+import com.dlocal.slackshot.model.CaptureOptions.Format;
+import com.dlocal.slackshot.model.Site;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Captures the open page with DevTools Page.captureScreenshot, so the image is
+ * encoded once by Chrome in the site's format instead of always as a viewport PNG.
+ */
+@Service
+public class DevToolsCaptureService {
+
+    private static final Logger log = LoggerFactory.getLogger(DevToolsCaptureService.class);
+
+    private static final String VIEWPORT_SCRIPT =
+        "return [window.innerWidth, window.innerHeight];";
+
+    /**
+     * Document coordinates of the element, which is what Page.captureScreenshot
+     * expects for its clip.
+     */
+    private static final String ELEMENT_RECT_SCRIPT =
+        "var e = document.querySelector(arguments[0]); if (!e) { return null; }"
+        + "var r = e.getBoundingClientRect();"
+        + "return [r.left + window.scrollX, r.top + window.scrollY, r.width, r.height];";
+
+    @Value("${capture.default-format:png}")
+    private String defaultFormat;
+
+    @Value("${capture.default-quality:80}")
+    private int defaultQuality;
+
+    @Value("${capture.tile-height-px:2000}")
+    private int tileHeight;
+
+    @Value("${capture.max-page-height-px:30000}")
+    private int maxPageHeight;
+
+    @Value("${capture.temp-dir:${java.io.tmpdir}}")
+    private String tempDir;
+
+    public CapturedImage capture(Site site, WebDriver driver) {
+        CaptureOptions options = site.getCapture() != null ? site.getCapture() : new CaptureOptions();
+        Format format = options.getFormat() != null ? options.getFormat() : Format.valueOf(defaultFormat.toUpperCase());
+
+        if (!(driver instanceof HasCdp)) {
+            log.warn("Driver has no DevTools access, capturing viewport PNG for site: {}", site.getName());
+            return new CapturedImage(((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES), "png");
+        }
+
+        HasCdp cdp = (HasCdp) driver;
+        boolean scaled = options.getDeviceScaleFactor() != null;
+        if (scaled) {
+            List<?> viewport = (List<?>) ((JavascriptExecutor) driver).executeScript(VIEWPORT_SCRIPT);
+            cdp.executeCdpCommand("Emulation.setDeviceMetricsOverride", Map.of(
+                "width", viewport.get(0),
+                "height", viewport.get(1),
+                "deviceScaleFactor", options.getDeviceScaleFactor(),
+                "mobile", false
+            ));
+        }
+
+        try {
+            Map<String, Object> params = new HashMap<>();
+            params.put("format", format.name().toLowerCase());
+            if (format != Format.PNG) {
+                params.put("quality", options.getQuality() != null ? options.getQuality() : defaultQuality);
+            }
+
+            Map<String, Object> clip = elementClip(site, options, driver);
+            boolean beyondViewport = clip != null || Boolean.TRUE.equals(options.getFullPage());
+            if (clip == null) {
+                clip = clip(options, beyondViewport, cdp);
+            }
+            if (clip != null && !options.hasClip() && format == Format.PNG
+                    && ((Number) clip.get("height")).doubleValue() > tileHeight) {
+                return captureTiled(site, cdp, clip);
+            }
+            if (clip != null) {
+                params.put("clip", clip);
+            }
+            if (beyondViewport) {
+                params.put("captureBeyondViewport", true);
+            }
+
+            Map<String, Object> result = cdp.executeCdpCommand("Page.captureScreenshot", params);
+            byte[] bytes = Base64.getDecoder().decode((String) result.get("data"));
+            return new CapturedImage(bytes, format.name().toLowerCase());
+        } finally {
+            if (scaled) {
+                // Pooled drivers are reused by other sites, so never leave the override behind
+                cdp.executeCdpCommand("Emulation.clearDeviceMetricsOverride", Map.of());
+            }
+        }
+    }
+
+    /**
+     * Capture a tall region as horizontal bands no higher than
+     * capture.tile-height-px and stitch them into a PNG on disk, so only one
+     * decoded tile is held in memory at a time.
+     */
+    private CapturedImage captureTiled(Site site, HasCdp cdp, Map<String, Object> region) {
+        double x = ((Number) region.get("x")).doubleValue();
+        double top = ((Number) region.get("y")).doubleValue();
+        double width = ((Number) region.get("width")).doubleValue();
+        double height = ((Number) region.get("height")).doubleValue();
+
+        Path target = null;
+        try {
+            target = Files.createTempFile(Paths.get(tempDir), "capture-", ".png");
+            try (StreamingPngEncoder encoder = new StreamingPngEncoder(target)) {
+                int tiles = 0;
+                for (double y = 0; y < height; y += tileHeight) {
+                    Map<String, Object> params = Map.of(
+                        "format", "png",
+                        "captureBeyondViewport", true,
+                        "clip", Map.of(
+                            "x", x,
+                            "y", top + y,
+                            "width", width,
+                            "height", Math.min(tileHeight, height - y),
+                            "scale", 1
+                        )
+                    );
+                    Map<String, Object> result = cdp.executeCdpCommand("Page.captureScreenshot", params);
+                    BufferedImage tile = ImageIO.read(new ByteArrayInputStream(
+                        Base64.getDecoder().decode((String) result.get("data"))));
+                    encoder.writeTile(tile);
+                    tiles++;
+                }
+                encoder.finish();
+                log.info("Stitched {} tiles into a {}x{} PNG for site: {}",
+                    tiles, encoder.getWidth(), encoder.getHeight(), site.getName());
+            }
+            return new CapturedImage(target, "png");
+        } catch (IOException e) {
+            deleteQuietly(target);
+            throw new UncheckedIOException("Failed to stitch full-page capture", e);
+        } catch (RuntimeException e) {
+            deleteQuietly(target);
+            throw e;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete capture file: {}", file, e);
+        }
+    }
+
+    /**
+     * The bounding box of the site's capture selector, or null when there is no
+     * selector or it does not match a visible element, in which case the capture
+     * falls back to the window.
+     */
+    private Map<String, Object> elementClip(Site site, CaptureOptions options, WebDriver driver) {
+        String selector = options.getSelector();
+        if (selector == null || selector.isBlank()) {
+            return null;
+        }
+
+        List<?> rect = (List<?>) ((JavascriptExecutor) driver).executeScript(ELEMENT_RECT_SCRIPT, selector);
+        if (rect == null || ((Number) rect.get(2)).doubleValue() <= 0 || ((Number) rect.get(3)).doubleValue() <= 0) {
+            log.warn("Capture selector '{}' matched no visible element for site: {}, capturing the window",
+                selector, site.getName());
+            return null;
+        }
+        return Map.of(
+            "x", rect.get(0),
+            "y", rect.get(1),
+            "width", rect.get(2),
+            "height", rect.get(3),
+            "scale", 1
+        );
+    }
+
+    /**
+     * The explicit clip rectangle of the site, or the whole document for
+     * full-page captures. Null captures the viewport.
+     */
+    private Map<String, Object> clip(CaptureOptions options, boolean fullPage, HasCdp cdp) {
+        if (options.hasClip()) {
+            return Map.of(
+                "x", options.getClipX() != null ? options.getClipX() : 0.0,
+                "y", options.getClipY() != null ? options.getClipY() : 0.0,
+                "width", options.getClipWidth(),
+                "height", options.getClipHeight(),
+                "scale", 1
+            );
+        }
+        if (fullPage) {
+            Map<String, Object> metrics = cdp.executeCdpCommand("Page.getLayoutMetrics", Map.of());
+            Map<?, ?> contentSize = (Map<?, ?>) metrics.getOrDefault("cssContentSize", metrics.get("contentSize"));
+            double height = ((Number) contentSize.get("height")).doubleValue();
+            if (height > maxPageHeight) {
+                log.warn("Page is {} px high, capturing the first {} px", (long) height, maxPageHeight);
+                height = maxPageHeight;
+            }
+            return Map.of(
+                "x", 0,
+                "y", 0,
+                "width", contentSize.get("width"),
+                "height", height,
+                "scale", 1
+            );
+        }
+        return null;
+    }
+
+    /**
+     * An encoded image, either in memory or, for stitched captures, in a temp
+     * file that is removed by {@link #discard()}.
+     */
+    public static class CapturedImage {
+        private final byte[] bytes;
+        private final Path file;
+        private final String type;
+
+        public CapturedImage(byte[] bytes, String type) {
+            this.bytes = bytes;
+            this.file = null;
+            this.type = type;
+        }
+
+        public CapturedImage(Path file, String type) {
+            this.bytes = null;
+            this.file = file;
+            this.type = type;
+        }
+
+        public byte[] getBytes() {
+            if (bytes != null) {
+                return bytes;
+            }
+            try {
+                return Files.readAllBytes(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read capture file: " + file, e);
+            }
+        }
+
+        public Path getFile() { return file; }
+        public String getType() { return type; }
+
+        public void discard() {
+            deleteQuietly(file);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.dlocal.slackshot.service;
+
+import com.dlocal.slackshot.model.Screenshot;
+import com.dlocal.slackshot.model.ScreenshotImage;
+import com.dlocal.slackshot.repository.ScreenshotImageRepository;
+import com.dlocal.slackshot.repository.ScreenshotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves images still stored as LONGBLOBs in the screenshots table into the
+ * image store, a batch at a time, once the application is up.
+ */
+@Component
+public class ImageStoreMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageStoreMigration.class);
+
+    @Autowired
+    private ScreenshotRepository screenshotRepository;
+
+    @Autowired
+    private ScreenshotImageRepository screenshotImageRepository;
+
+    @Autowired
+    private ImageStoreService imageStoreService;
+
+    @Value("${image-store.migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${image-store.migration.batch-size:20}")
+    private int batchSize;
+
+    @Value("${image-store.migration.batch-pause-ms:200}")
+    private long batchPauseMs;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        if (!enabled) {
+            return;
+        }
+
+        long migrated = 0;
+        long failed = 0;
+        long afterId = 0;
+        List<Long> ids;
+        while (!(ids = screenshotImageRepository.findIdsWithImageData(afterId, PageRequest.of(0, batchSize))).isEmpty()) {
+            for (Long id : ids) {
+                if (migrateOne(id)) {
+                    migrated++;
+                } else {
+                    failed++;
+                }
+                afterId = id;
+            }
+            log.info("Moved {} screenshots to the image store so far ({} failed)", migrated, failed);
+
+            try {
+                Thread.sleep(batchPauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Image store migration interrupted after {} screenshots", migrated);
+                return;
+            }
+        }
+
+        if (migrated > 0 || failed > 0) {
+            log.info("Image store migration finished: {} moved, {} failed", migrated, failed);
+        }
+    }
+
+    private boolean migrateOne(Long id) {
+        Screenshot screenshot = screenshotRepository.findById(id).orElse(null);
+        if (screenshot == null) {
+            return true;
+        }
+        if (screenshot.getImageHash() != null) {
+            // Moved before, only the legacy bytes were left behind
+            screenshotImageRepository.clearImageData(id);
+            return true;
+        }
+
+        ImageStoreService.StoredImage image = null;
+        try {
+            ScreenshotImage legacy = screenshotImageRepository.findById(id).orElseThrow();
+            image = imageStoreService.store(legacy.getImageData());
+            screenshot.setImageHash(image.getHash());
+            screenshot.setSize(image.getSize());
+            screenshotRepository.save(screenshot);
+        } catch (Exception e) {
+            log.error("Failed to move screenshot {} to the image store", id, e);
+            if (image != null) {
+                imageStoreService.release(image.getHash());
+            }
+            return false;
+        }
+
+        screenshotImageRepository.clearImageData(id);
+        return true;
+    }
+}
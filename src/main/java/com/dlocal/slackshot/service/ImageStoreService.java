@@ -0,0 +1,253 @@
+package com.dlocal.slackshot.service;
+
+import com.dlocal.slackshot.model.ImageBlob;
+import com.dlocal.slackshot.repository.ImageBlobRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed image files. An image lives at {root}/ab/cd/{sha256}, is
+ * written under a temp name and renamed into place, and is shared by every
+ * screenshot with the same bytes. ImageBlob rows count those screenshots; the
+ * file goes away with the last one.
+ */
+@Service
+public class ImageStoreService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageStoreService.class);
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    @Value("${image-store.root:./image-store}")
+    private String rootDir;
+
+    private Path root;
+    private Path staging;
+
+    private static final int REF_LOCK_STRIPES = 64;
+
+    /**
+     * Guard reference counts together with the file they count, so a file is
+     * never deleted between another writer finding it and counting it. Striped
+     * by hash, so stores and deletes of different images do not wait on each
+     * other.
+     */
+    private final Object[] refLocks = new Object[REF_LOCK_STRIPES];
+
+    private final AtomicLong stored = new AtomicLong(0);
+    private final AtomicLong deduplicated = new AtomicLong(0);
+    private final AtomicLong deleted = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        for (int i = 0; i < refLocks.length; i++) {
+            refLocks[i] = new Object();
+        }
+        root = Paths.get(rootDir).toAbsolutePath().normalize();
+        staging = root.resolve("tmp");
+        try {
+            Files.createDirectories(staging);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create image store at " + root, e);
+        }
+        log.info("Image store at {}", root);
+    }
+
+    /**
+     * Store the bytes and count one more reference to them.
+     */
+    public StoredImage store(byte[] data) {
+        Path temp = staging.resolve(UUID.randomUUID() + ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                out.write(data);
+            }
+            return link(temp, HexFormat.of().formatHex(digest.digest()), data.length);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new UncheckedIOException("Failed to store image", e);
+        }
+    }
+
+    /**
+     * Move the file into the store and count one more reference to it. The
+     * source file is consumed.
+     */
+    public StoredImage store(Path file) {
+        Path temp = staging.resolve(UUID.randomUUID() + ".tmp");
+        try {
+            Files.move(file, temp);
+            MessageDigest digest = sha256();
+            try (InputStream in = Files.newInputStream(temp)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            return link(temp, HexFormat.of().formatHex(digest.digest()), Files.size(temp));
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new UncheckedIOException("Failed to store image", e);
+        }
+    }
+
+    private StoredImage link(Path temp, String hash, long size) throws IOException {
+        Path target = resolve(hash);
+        synchronized (refLock(hash)) {
+            ImageBlob blob = imageBlobRepository.findById(hash).orElse(null);
+            if (blob != null && Files.exists(target)) {
+                Files.delete(temp);
+                blob.setRefCount(blob.getRefCount() + 1);
+                imageBlobRepository.save(blob);
+                deduplicated.incrementAndGet();
+                return new StoredImage(hash, size);
+            }
+
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Left over from an interrupted store; same hash means same bytes
+                Files.delete(temp);
+            }
+
+            if (blob == null) {
+                blob = new ImageBlob(hash, size, 0, LocalDateTime.now());
+            }
+            blob.setRefCount(blob.getRefCount() + 1);
+            imageBlobRepository.save(blob);
+            stored.incrementAndGet();
+            return new StoredImage(hash, size);
+        }
+    }
+
+    /**
+     * Drop one reference to the image, deleting it when none are left.
+     */
+    public void release(String hash) {
+        if (hash == null) {
+            return;
+        }
+        synchronized (refLock(hash)) {
+            ImageBlob blob = imageBlobRepository.findById(hash).orElse(null);
+            if (blob == null) {
+                log.warn("Releasing unknown image: {}", hash);
+                return;
+            }
+            if (blob.getRefCount() > 1) {
+                blob.setRefCount(blob.getRefCount() - 1);
+                imageBlobRepository.save(blob);
+                return;
+            }
+            imageBlobRepository.delete(blob);
+            deleteQuietly(resolve(hash));
+            deleted.incrementAndGet();
+        }
+    }
+
+    private Object refLock(String hash) {
+        return refLocks[Math.floorMod(hash.hashCode(), refLocks.length)];
+    }
+
+    public Path resolve(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    public InputStream open(String hash) throws IOException {
+        return Files.newInputStream(resolve(hash));
+    }
+
+    public byte[] read(String hash) {
+        try {
+            return Files.readAllBytes(resolve(hash));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read image: " + hash, e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete image file: {}", file, e);
+        }
+    }
+
+    public ImageStoreStats getStats() {
+        ImageStoreStats stats = new ImageStoreStats();
+        stats.setBlobs(imageBlobRepository.count());
+        stats.setTotalBytes(imageBlobRepository.sumSize());
+        stats.setStored(stored.get());
+        stats.setDeduplicated(deduplicated.get());
+        stats.setDeleted(deleted.get());
+        return stats;
+    }
+
+    public static class StoredImage {
+        private final String hash;
+        private final long size;
+
+        public StoredImage(String hash, long size) {
+            this.hash = hash;
+            this.size = size;
+        }
+
+        public String getHash() { return hash; }
+        public long getSize() { return size; }
+    }
+
+    public static class ImageStoreStats {
+        private long blobs;
+        private long totalBytes;
+        private long stored;
+        private long deduplicated;
+        private long deleted;
+
+        public long getBlobs() { return blobs; }
+        public void setBlobs(long blobs) { this.blobs = blobs; }
+
+        public long getTotalBytes() { return totalBytes; }
+        public void setTotalBytes(long totalBytes) { this.totalBytes = totalBytes; }
+
+        public long getStored() { return stored; }
+        public void setStored(long stored) { this.stored = stored; }
+
+        public long getDeduplicated() { return deduplicated; }
+        public void setDeduplicated(long deduplicated) { this.deduplicated = deduplicated; }
+
+        public long getDeleted() { return deleted; }
+        public void setDeleted(long deleted) { this.deleted = deleted; }
+    }
+}
@@ -0,0 +1,217 @@
+package com.dlocal.slackshot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * The latest screenshot of each site, kept in memory in LRU order and bounded
+ * both by entry count and by image bytes. Images over the per-entry cap are
+ * cached without their bytes, so one large capture cannot flush the rest while
+ * lookups and ETag checks for it still skip the database.
+ */
+@Component
+public class LatestScreenshotCache {
+
+    private static final Logger log = LoggerFactory.getLogger(LatestScreenshotCache.class);
+
+    @Value("${screenshot.cache.max-entries:200}")
+    private int maxEntries;
+
+    @Value("${screenshot.cache.max-bytes-mb:64}")
+    private long maxBytesMb;
+
+    @Value("${screenshot.cache.max-entry-bytes-mb:8}")
+    private long maxEntryBytesMb;
+
+    private final LinkedHashMap<String, CachedScreenshot> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    /**
+     * Bumped on every invalidation, so a load that started before a new
+     * screenshot was saved does not put the old one back.
+     */
+    private final ConcurrentHashMap<String, Long> generations = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+    private final AtomicLong notModified = new AtomicLong(0);
+
+    public CachedScreenshot get(String siteName, Function<String, CachedScreenshot> loader) {
+        synchronized (entries) {
+            CachedScreenshot cached = entries.get(siteName);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        misses.incrementAndGet();
+        long generation = generations.getOrDefault(siteName, 0L);
+        CachedScreenshot loaded = loader.apply(siteName);
+        if (loaded.getBytes() != null && !fits(loaded.getBytes().length)) {
+            loaded = loaded.withoutBytes();
+        }
+
+        synchronized (entries) {
+            if (generations.getOrDefault(siteName, 0L) == generation) {
+                CachedScreenshot previous = entries.put(siteName, loaded);
+                cachedBytes += loaded.weight() - (previous != null ? previous.weight() : 0);
+                evictOverflow();
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Whether an image of this size would be cached with its bytes.
+     */
+    public boolean fits(long size) {
+        return size <= maxEntryBytes();
+    }
+
+    public void invalidate(String siteName) {
+        generations.merge(siteName, 1L, Long::sum);
+        synchronized (entries) {
+            CachedScreenshot removed = entries.remove(siteName);
+            if (removed != null) {
+                cachedBytes -= removed.weight();
+            }
+        }
+    }
+
+    public void recordNotModified() {
+        notModified.incrementAndGet();
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, CachedScreenshot>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || cachedBytes > maxBytes()) && eldest.hasNext()) {
+            CachedScreenshot evicted = eldest.next().getValue();
+            eldest.remove();
+            cachedBytes -= evicted.weight();
+            evictions.incrementAndGet();
+            log.debug("Evicted latest screenshot of site {} from cache", evicted.getSiteName());
+        }
+    }
+
+    private long maxBytes() {
+        return maxBytesMb * 1024 * 1024;
+    }
+
+    private long maxEntryBytes() {
+        return Math.min(maxEntryBytesMb * 1024 * 1024, maxBytes());
+    }
+
+    public CacheStats getStats() {
+        CacheStats stats = new CacheStats();
+        synchronized (entries) {
+            stats.setEntries(entries.size());
+            stats.setCachedBytes(cachedBytes);
+        }
+        stats.setMaxEntries(maxEntries);
+        stats.setMaxBytes(maxBytes());
+        stats.setMaxEntryBytes(maxEntryBytes());
+        stats.setHits(hits.get());
+        stats.setMisses(misses.get());
+        stats.setEvictions(evictions.get());
+        stats.setNotModified(notModified.get());
+        long lookups = hits.get() + misses.get();
+        stats.setHitRatio(lookups > 0 ? (double) hits.get() / lookups : 0.0);
+        return stats;
+    }
+
+    public static class CachedScreenshot {
+        private final Long screenshotId;
+        private final String siteName;
+        private final String type;
+        private final String etag;
+        private final LocalDateTime createdAt;
+        private final String imageHash;
+        private final byte[] bytes;
+
+        public CachedScreenshot(Long screenshotId, String siteName, String type, String etag,
+                                LocalDateTime createdAt, String imageHash, byte[] bytes) {
+            this.screenshotId = screenshotId;
+            this.siteName = siteName;
+            this.type = type;
+            this.etag = etag;
+            this.createdAt = createdAt;
+            this.imageHash = imageHash;
+            this.bytes = bytes;
+        }
+
+        CachedScreenshot withoutBytes() {
+            return new CachedScreenshot(screenshotId, siteName, type, etag, createdAt, imageHash, null);
+        }
+
+        long weight() {
+            return bytes != null ? bytes.length : 0;
+        }
+
+        public Long getScreenshotId() { return screenshotId; }
+        public String getSiteName() { return siteName; }
+        public String getType() { return type; }
+        public String getEtag() { return etag; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public String getImageHash() { return imageHash; }
+        public byte[] getBytes() { return bytes; }
+
+        public String getContentType() {
+            return "image/" + (type != null ? type : "png");
+        }
+    }
+
+    public static class CacheStats {
+        private int entries;
+        private int maxEntries;
+        private long cachedBytes;
+        private long maxBytes;
+        private long maxEntryBytes;
+        private long hits;
+        private long misses;
+        private long evictions;
+        private long notModified;
+        private double hitRatio;
+
+        public int getEntries() { return entries; }
+        public void setEntries(int entries) { this.entries = entries; }
+
+        public int getMaxEntries() { return maxEntries; }
+        public void setMaxEntries(int maxEntries) { this.maxEntries = maxEntries; }
+
+        public long getCachedBytes() { return cachedBytes; }
+        public void setCachedBytes(long cachedBytes) { this.cachedBytes = cachedBytes; }
+
+        public long getMaxBytes() { return maxBytes; }
+        public void setMaxBytes(long maxBytes) { this.maxBytes = maxBytes; }
+
+        public long getMaxEntryBytes() { return maxEntryBytes; }
+        public void setMaxEntryBytes(long maxEntryBytes) { this.maxEntryBytes = maxEntryBytes; }
+
+        public long getHits() { return hits; }
+        public void setHits(long hits) { this.hits = hits; }
+
+        public long getMisses() { return misses; }
+        public void setMisses(long misses) { this.misses = misses; }
+
+        public long getEvictions() { return evictions; }
+        public void setEvictions(long evictions) { this.evictions = evictions; }
+
+        public long getNotModified() { return notModified; }
+        public void setNotModified(long notModified) { this.notModified = notModified; }
+
+        public double getHitRatio() { return hitRatio; }
+        public void setHitRatio(double hitRatio) { this.hitRatio = hitRatio; }
+    }
+}
@@ -0,0 +1,236 @@
+package com.dlocal.slackshot.service;
+
+import com.dlocal.slackshot.model.ReadinessOptions;
+import com.dlocal.slackshot.model.ReadinessOptions.Strategy;
+import com.dlocal.slackshot.model.Site;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Single place where capture and login code waits for a page. Waits poll the
+ * page state instead of sleeping, end as soon as the condition holds, and give
+ * up at the budget so a slow page is captured as-is rather than failing.
+ */
+@Service
+public class PageReadinessService {
+
+    private static final Logger log = LoggerFactory.getLogger(PageReadinessService.class);
+
+    /**
+     * Installs counters for in-flight fetch/XHR requests and the time of the
+     * last DOM mutation. Runs again after every navigation.
+     */
+    private static final String INSTALL_TRACKER_SCRIPT =
+        "if (!window.__slackshot) {"
+        + " var s = window.__slackshot = { inflight: 0, lastNetwork: performance.now(), lastMutation: performance.now(),"
+        + "  resources: performance.getEntriesByType('resource').length };"
+        + " var touch = function () { s.lastNetwork = performance.now(); };"
+        + " if (window.fetch) { var originalFetch = window.fetch; window.fetch = function () {"
+        + "  s.inflight++; touch();"
+        + "  return originalFetch.apply(this, arguments).finally(function () { s.inflight--; touch(); }); }; }"
+        + " var originalSend = XMLHttpRequest.prototype.send;"
+        + " XMLHttpRequest.prototype.send = function () {"
+        + "  s.inflight++; touch();"
+        + "  this.addEventListener('loadend', function () { s.inflight--; touch(); });"
+        + "  return originalSend.apply(this, arguments); };"
+        + " new MutationObserver(function () { s.lastMutation = performance.now(); })"
+        + "  .observe(document, { subtree: true, childList: true, attributes: true, characterData: true });"
+        + "}";
+
+    private static final String PAGE_STATE_SCRIPT =
+        "var s = window.__slackshot; if (!s) { return null; }"
+        + "var resources = performance.getEntriesByType('resource').length;"
+        + "if (resources !== s.resources) { s.resources = resources; s.lastNetwork = performance.now(); }"
+        + "return { readyState: document.readyState, inflight: s.inflight,"
+        + " networkQuietMs: performance.now() - s.lastNetwork, domQuietMs: performance.now() - s.lastMutation };";
+
+    private static final String SELECTOR_VISIBLE_SCRIPT =
+        "var e = document.querySelector(arguments[0]); if (!e) { return false; }"
+        + "var r = e.getBoundingClientRect(); var st = window.getComputedStyle(e);"
+        + "return r.width > 0 && r.height > 0 && st.visibility !== 'hidden' && st.display !== 'none';";
+
+    @Value("${readiness.default-timeout-ms:15000}")
+    private long defaultTimeoutMs;
+
+    @Value("${readiness.quiet-ms:500}")
+    private long defaultQuietMs;
+
+    @Value("${readiness.poll-interval-ms:100}")
+    private long pollIntervalMs;
+
+    @Value("${readiness.login-timeout-ms:25000}")
+    private long loginTimeoutMs;
+
+    @Value("${readiness.dom-settle-ms:1500}")
+    private long domSettleMs;
+
+    private final ConcurrentHashMap<String, WaitStats> statsBySite = new ConcurrentHashMap<>();
+
+    /**
+     * Wait until the site's page is ready according to its readiness options.
+     * Returns false when the budget ran out first. AUTO waits for the network
+     * to go idle, then at most readiness.dom-settle-ms for the DOM to go quiet;
+     * a DOM that keeps changing is captured as-is and counted in
+     * domSettleTimeouts rather than holding the browser for the whole budget.
+     */
+    public boolean awaitReady(Site site, WebDriver driver) {
+        ReadinessOptions options = site.getReadiness() != null ? site.getReadiness() : new ReadinessOptions();
+        Strategy strategy = options.getStrategy() != null ? options.getStrategy() : Strategy.AUTO;
+        String selector = options.getSelector();
+        if ((selector == null || selector.isBlank()) && site.getCapture() != null) {
+            // An element capture is only ready once the element is there
+            selector = site.getCapture().getSelector();
+        }
+        long quietMs = options.getQuietMs() != null ? options.getQuietMs() : defaultQuietMs;
+        long timeoutMs = options.getTimeoutMs() != null ? options.getTimeoutMs() : defaultTimeoutMs;
+
+        if (strategy == Strategy.SELECTOR && (selector == null || selector.isBlank())) {
+            log.warn("Site {} uses SELECTOR readiness without a selector, using AUTO", site.getName());
+            strategy = Strategy.AUTO;
+        }
+
+        Strategy effectiveStrategy = strategy;
+        String effectiveSelector = selector;
+        if (strategy != Strategy.AUTO) {
+            return awaitCondition(site.getName(), driver, Duration.ofMillis(timeoutMs),
+                d -> isReady(d, effectiveStrategy, effectiveSelector, quietMs));
+        }
+
+        // Dashboards poll and re-render all the time, so the DOM may never go
+        // quiet: wait for the network, then give the DOM a short bounded settle
+        long start = System.nanoTime();
+        boolean ready = poll(driver, Duration.ofMillis(timeoutMs),
+            d -> isReady(d, Strategy.NETWORK_IDLE, effectiveSelector, quietMs));
+        boolean settled = !ready || poll(driver, Duration.ofMillis(domSettleMs),
+            d -> isReady(d, Strategy.DOM_QUIET, null, quietMs));
+        if (!ready) {
+            log.warn("Readiness wait for {} gave up after {} ms", site.getName(), timeoutMs);
+        } else if (!settled) {
+            log.debug("DOM of {} still changing after {} ms settle, capturing as-is", site.getName(), domSettleMs);
+        }
+        WaitStats stats = record(site.getName(), start, ready);
+        if (!settled) {
+            stats.domSettleTimeouts.incrementAndGet();
+        }
+        return ready;
+    }
+
+    /**
+     * Wait for a login flow to move on, within readiness.login-timeout-ms.
+     */
+    public boolean awaitLogin(Site site, WebDriver driver, Function<WebDriver, Boolean> condition) {
+        return awaitCondition(site.getName() + "/login", driver, Duration.ofMillis(loginTimeoutMs), condition);
+    }
+
+    /**
+     * Poll a condition until it holds or the budget runs out, recording the time
+     * spent under the given key.
+     */
+    public boolean awaitCondition(String key, WebDriver driver, Duration budget, Function<WebDriver, Boolean> condition) {
+        long start = System.nanoTime();
+        boolean ready = poll(driver, budget, condition);
+        if (!ready) {
+            log.warn("Readiness wait for {} gave up after {} ms", key, budget.toMillis());
+        }
+        record(key, start, ready);
+        return ready;
+    }
+
+    private boolean poll(WebDriver driver, Duration budget, Function<WebDriver, Boolean> condition) {
+        try {
+            new WebDriverWait(driver, budget, Duration.ofMillis(pollIntervalMs))
+                .ignoring(org.openqa.selenium.JavascriptException.class)
+                .until(condition);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    private WaitStats record(String key, long start, boolean ready) {
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        WaitStats stats = statsBySite.computeIfAbsent(key, k -> new WaitStats());
+        stats.record(elapsedMs, !ready);
+        log.debug("Readiness wait for {} took {} ms", key, elapsedMs);
+        return stats;
+    }
+
+    private boolean isReady(WebDriver driver, Strategy strategy, String selector, long quietMs) {
+        JavascriptExecutor js = (JavascriptExecutor) driver;
+
+        if (selector != null && !selector.isBlank()
+                && !Boolean.TRUE.equals(js.executeScript(SELECTOR_VISIBLE_SCRIPT, selector))) {
+            return false;
+        }
+        if (strategy == Strategy.SELECTOR) {
+            return true;
+        }
+
+        Object rawState = js.executeScript(PAGE_STATE_SCRIPT);
+        if (!(rawState instanceof Map)) {
+            js.executeScript(INSTALL_TRACKER_SCRIPT);
+            return false;
+        }
+
+        Map<?, ?> state = (Map<?, ?>) rawState;
+        if (!"complete".equals(state.get("readyState"))) {
+            return false;
+        }
+        boolean networkIdle = ((Number) state.get("inflight")).longValue() <= 0
+            && ((Number) state.get("networkQuietMs")).longValue() >= quietMs;
+        boolean domQuiet = ((Number) state.get("domQuietMs")).longValue() >= quietMs;
+
+        switch (strategy) {
+            case NETWORK_IDLE:
+                return networkIdle;
+            case DOM_QUIET:
+                return domQuiet;
+            default:
+                return networkIdle && domQuiet;
+        }
+    }
+
+    public Map<String, WaitStats> getStats() {
+        return new TreeMap<>(statsBySite);
+    }
+
+    public static class WaitStats {
+        private final AtomicLong waits = new AtomicLong(0);
+        private final AtomicLong totalMillis = new AtomicLong(0);
+        private final AtomicLong maxMillis = new AtomicLong(0);
+        private final AtomicLong timeouts = new AtomicLong(0);
+        private final AtomicLong domSettleTimeouts = new AtomicLong(0);
+
+        void record(long elapsedMs, boolean timedOut) {
+            waits.incrementAndGet();
+            totalMillis.addAndGet(elapsedMs);
+            maxMillis.accumulateAndGet(elapsedMs, Math::max);
+            if (timedOut) {
+                timeouts.incrementAndGet();
+            }
+        }
+
+        public long getWaits() { return waits.get(); }
+        public long getTotalMillis() { return totalMillis.get(); }
+        public long getMaxMillis() { return maxMillis.get(); }
+        public long getTimeouts() { return timeouts.get(); }
+        public long getDomSettleTimeouts() { return domSettleTimeouts.get(); }
+        public long getAverageMillis() {
+            long count = waits.get();
+            return count > 0 ? totalMillis.get() / count : 0;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.dlocal.slackshot.service;
+
+import org.openqa.selenium.WebDriver;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A browser (or browser context) owned by the {@link WebDriverManager} pool,
+ * together with the bookkeeping used to decide when it should be retired.
+ */
+public class PooledDriver {
+
+    private final long id;
+    private final WebDriver driver;
+    private final Instant createdAt;
+    private final BrowserInstance browser;
+    private final String browserContextId;
+    private final AtomicInteger useCount = new AtomicInteger(0);
+    private volatile String affinity;
+    private volatile String sessionScriptId;
+    private volatile Instant idleSince;
+
+    PooledDriver(long id, WebDriver driver, Instant createdAt, BrowserInstance browser, String browserContextId) {
+        this.id = id;
+        this.driver = driver;
+        this.createdAt = createdAt;
+        this.browser = browser;
+        this.browserContextId = browserContextId;
+    }
+
+    public long getId() { return id; }
+    public WebDriver getDriver() { return driver; }
+    public Instant getCreatedAt() { return createdAt; }
+    public BrowserInstance getBrowser() { return browser; }
+    public int getUseCount() { return useCount.get(); }
+
+    /**
+     * The isolated browser context this driver runs in, or null when the driver
+     * owns its whole browser.
+     */
+    public String getBrowserContextId() { return browserContextId; }
+
+    /**
+     * The site this browser holds a logged-in session for, or null when its
+     * cookies are cleared between leases.
+     */
+    public String getAffinity() { return affinity; }
+    void setAffinity(String affinity) { this.affinity = affinity; }
+
+    /**
+     * Identifier of the localStorage-seeding script the session cache registered
+     * in this browser, or null. It is removed when the session is cleared.
+     */
+    String getSessionScriptId() { return sessionScriptId; }
+    void setSessionScriptId(String sessionScriptId) { this.sessionScriptId = sessionScriptId; }
+
+    public Duration getAge(Instant now) {
+        return Duration.between(createdAt, now);
+    }
+
+    /**
+     * Time since the driver was last put back into the idle queue.
+     */
+    public Duration getIdleTime(Instant now) {
+        Instant since = idleSince;
+        return since != null ? Duration.between(since, now) : Duration.ZERO;
+    }
+
+    void markIdle(Instant now) {
+        this.idleSince = now;
+    }
+
+    int recordUse() {
+        return useCount.incrementAndGet();
+    }
+}
@@ -0,0 +1,184 @@
+package com.dlocal.slackshot.service;
+
+import com.dlocal.slackshot.model.BlockingOptions;
+import com.dlocal.slackshot.model.Site;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps analytics, fonts, media and other requests that never matter in a
+ * screenshot from loading, and measures what each page costs with and without
+ * blocking.
+ */
+@Service
+public class RequestBlockingService {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestBlockingService.class);
+
+    /**
+     * Network.setBlockedURLs only matches URLs, so resource types are blocked
+     * through the URL patterns that usually serve them.
+     */
+    private static final Map<String, List<String>> RESOURCE_TYPE_PATTERNS = Map.of(
+        "font", List.of("*.woff*", "*.ttf*", "*.otf*", "*.eot*", "*fonts.googleapis.com/*", "*fonts.gstatic.com/*"),
+        "media", List.of("*.mp4*", "*.webm*", "*.ogg*", "*.mp3*", "*.m3u8*", "*.mov*"),
+        "image", List.of("*.png*", "*.jpg*", "*.jpeg*", "*.gif*", "*.webp*", "*.svg*", "*.ico*"),
+        "stylesheet", List.of("*.css*"),
+        "script", List.of("*.js", "*.js?*")
+    );
+
+    /**
+     * Bytes and load time of the current document from the Performance API.
+     * Cross-origin resources without Timing-Allow-Origin report a size of 0.
+     */
+    private static final String PAGE_COST_SCRIPT =
+        "var nav = performance.getEntriesByType('navigation')[0]; if (!nav) { return null; }"
+        + "var bytes = nav.transferSize || 0;"
+        + "performance.getEntriesByType('resource').forEach(function (r) { bytes += r.transferSize || 0; });"
+        + "var end = nav.loadEventEnd > 0 ? nav.loadEventEnd : performance.now();"
+        + "return { bytes: bytes, loadMillis: Math.round(end - nav.startTime) };";
+
+    @Value("${blocking.default-url-patterns:}")
+    private String defaultUrlPatterns;
+
+    @Value("${blocking.default-resource-types:}")
+    private String defaultResourceTypes;
+
+    private final ConcurrentHashMap<String, SiteNetworkStats> statsBySite = new ConcurrentHashMap<>();
+
+    /**
+     * Install the site's block list on the driver before the site is opened.
+     * Always sends the full list, so a list left by the previous capture on a
+     * pooled driver is replaced. Returns whether anything is blocked.
+     */
+    public boolean apply(Site site, WebDriver driver) {
+        if (!(driver instanceof HasCdp)) {
+            return false;
+        }
+
+        List<String> patterns = blockedPatterns(site);
+        try {
+            HasCdp cdp = (HasCdp) driver;
+            cdp.executeCdpCommand("Network.enable", Map.of());
+            cdp.executeCdpCommand("Network.setBlockedURLs", Map.of("urls", patterns));
+            if (!patterns.isEmpty()) {
+                log.debug("Blocking {} URL patterns for site: {}", patterns.size(), site.getName());
+            }
+            return !patterns.isEmpty();
+        } catch (Exception e) {
+            log.warn("Could not install request blocking for site: {}", site.getName(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Record the transfer size and load time of the page currently open in the
+     * driver, under the blocked or unblocked bucket of the site.
+     */
+    public void recordPageCost(Site site, WebDriver driver, boolean blocked) {
+        try {
+            Object result = ((JavascriptExecutor) driver).executeScript(PAGE_COST_SCRIPT);
+            if (!(result instanceof Map)) {
+                return;
+            }
+            Map<?, ?> cost = (Map<?, ?>) result;
+            long bytes = ((Number) cost.get("bytes")).longValue();
+            long loadMillis = ((Number) cost.get("loadMillis")).longValue();
+
+            SiteNetworkStats stats = statsBySite.computeIfAbsent(site.getName(), k -> new SiteNetworkStats());
+            (blocked ? stats.blocked : stats.unblocked).record(bytes, loadMillis);
+        } catch (Exception e) {
+            log.debug("Could not measure page cost for site: {}", site.getName(), e);
+        }
+    }
+
+    private List<String> blockedPatterns(Site site) {
+        BlockingOptions options = site.getBlocking() != null ? site.getBlocking() : new BlockingOptions();
+        if (Boolean.FALSE.equals(options.getEnabled())) {
+            return List.of();
+        }
+
+        Set<String> patterns = new LinkedHashSet<>();
+        if (!Boolean.FALSE.equals(options.getUseDefaults())) {
+            patterns.addAll(split(defaultUrlPatterns));
+            patterns.addAll(resourceTypePatterns(split(defaultResourceTypes)));
+        }
+        patterns.addAll(split(options.getUrlPatterns()));
+        patterns.addAll(resourceTypePatterns(split(options.getResourceTypes())));
+        return new ArrayList<>(patterns);
+    }
+
+    private List<String> resourceTypePatterns(List<String> resourceTypes) {
+        List<String> patterns = new ArrayList<>();
+        for (String type : resourceTypes) {
+            List<String> typePatterns = RESOURCE_TYPE_PATTERNS.get(type.toLowerCase());
+            if (typePatterns == null) {
+                log.warn("Unknown resource type in block list: {}", type);
+                continue;
+            }
+            patterns.addAll(typePatterns);
+        }
+        return patterns;
+    }
+
+    private static List<String> split(String value) {
+        if (value == null || value.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(value.split(","))
+            .map(String::trim)
+            .filter(s -> !s.isEmpty())
+            .toList();
+    }
+
+    public Map<String, SiteNetworkStats> getStats() {
+        return new TreeMap<>(statsBySite);
+    }
+
+    public static class SiteNetworkStats {
+        private final PageCostStats blocked = new PageCostStats();
+        private final PageCostStats unblocked = new PageCostStats();
+
+        public PageCostStats getBlocked() { return blocked; }
+        public PageCostStats getUnblocked() { return unblocked; }
+    }
+
+    public static class PageCostStats {
+        private final AtomicLong loads = new AtomicLong(0);
+        private final AtomicLong totalBytes = new AtomicLong(0);
+        private final AtomicLong totalLoadMillis = new AtomicLong(0);
+
+        void record(long bytes, long loadMillis) {
+            loads.incrementAndGet();
+            totalBytes.addAndGet(bytes);
+            totalLoadMillis.addAndGet(loadMillis);
+        }
+
+        public long getLoads() { return loads.get(); }
+        public long getTotalBytes() { return totalBytes.get(); }
+        public long getTotalLoadMillis() { return totalLoadMillis.get(); }
+        public long getAverageBytes() {
+            long count = loads.get();
+            return count > 0 ? totalBytes.get() / count : 0;
+        }
+        public long getAverageLoadMillis() {
+            long count = loads.get();
+            return count > 0 ? totalLoadMillis.get() / count : 0;
+        }
+    }
+}
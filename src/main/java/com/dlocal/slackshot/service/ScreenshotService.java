@@ -1,29 +1,38 @@
 package com.dlocal.slackshot.service;
 
-import com.codeborne.selenide.Selenide;
-import com.codeborne.selenide.WebDriverRunner;
+import com.codeborne.selenide.SelenideConfig;
+import com.codeborne.selenide.SelenideDriver;
 import com.dlocal.slackshot.model.Screenshot;
+import com.dlocal.slackshot.model.ScreenshotImage;
 import com.dlocal.slackshot.model.ScreenshotTask;
 import com.dlocal.slackshot.model.Site;
 import com.dlocal.slackshot.model.Site.LoginType;
+import com.dlocal.slackshot.repository.ScreenshotImageRepository;
 import com.dlocal.slackshot.repository.ScreenshotRepository;
 import com.dlocal.slackshot.repository.ScreenshotTaskRepository;
 import com.dlocal.slackshot.repository.SiteRepository;
+import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
+import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.codeborne.selenide.Condition.visible;
-import static com.codeborne.selenide.Selenide.$;
-import static com.codeborne.selenide.Selenide.open;
 
 @Service
 public class ScreenshotService {
@@ -41,60 +50,177 @@ public class ScreenshotService {
     
     @Autowired
     private WebDriverManager webDriverManager;
+    
+    @Autowired
+    private SessionCacheService sessionCacheService;
+    
+    @Autowired
+    private PageReadinessService pageReadinessService;
+    
+    @Autowired
+    private RequestBlockingService requestBlockingService;
+    
+    @Autowired
+    private DevToolsCaptureService devToolsCaptureService;
+    
+    @Autowired
+    private ScreenshotImageRepository screenshotImageRepository;
+    
+    @Autowired
+    private ImageStoreService imageStoreService;
+    
+    @Autowired
+    private LatestScreenshotCache latestScreenshotCache;
+    
+    @Autowired
+    private CaptureCoordinator captureCoordinator;
+    
+    @Autowired
+    private CaptureExecutor captureExecutor;
+    
+    @Autowired
+    private SelenideConfig selenideConfig;
+
+    private final Set<Long> queuedTaskIds = ConcurrentHashMap.newKeySet();
 
+    /**
+     * Capture the site for a waiting caller, ahead of scheduled captures,
+     * sharing the capture with any other caller that is already capturing it.
+     */
     public Screenshot takeScreenshot(Site site) {
+        return captureCoordinator.await(site.getName(),
+            captureAsync(site, CaptureExecutor.Priority.INTERACTIVE, "on demand for " + site.getName(), () -> { }));
+    }
+
+    /**
+     * Queue a capture of the site in the given class, or join the one already
+     * in flight for it. onStart runs once the capture this caller waits on has
+     * started: when its own capture leaves the queue, or at once when joining.
+     *
+     * @throws CaptureRejectedException if the capture executor is full
+     */
+    public CompletableFuture<Screenshot> captureAsync(Site site, CaptureExecutor.Priority priority, String description,
+                                                      Runnable onStart) {
+        boolean[] leader = new boolean[1];
+        CompletableFuture<Screenshot> capture = captureCoordinator.capture(site.getName(), priority, () -> {
+            leader[0] = true;
+            return captureExecutor.submit(priority, description, () -> {
+                onStart.run();
+                return capture(site);
+            });
+        });
+        if (!leader[0]) {
+            onStart.run();
+        }
+        return capture;
+    }
+
+    private Screenshot capture(Site site) {
         log.info("Taking screenshot for site: {}", site.getName());
         
-        WebDriver driver = null;
-        try {
-            driver = webDriverManager.getDriver();
+        String affinity = site.getLoginType() != LoginType.NONE ? site.getName() : null;
+        try (WebDriverLease lease = webDriverManager.acquire(affinity)) {
+            WebDriver driver = lease.getDriver();
+            
+            SelenideDriver browser = new SelenideDriver(selenideConfig, driver, null);
+            
+            boolean sessionRestored = site.getLoginType() != LoginType.NONE
+                && !lease.isSessionReused()
+                && sessionCacheService.restore(site, lease);
             
-            WebDriverRunner.setWebDriver(driver);
+            boolean blocked = requestBlockingService.apply(site, driver);
             
-            open(site.getUrl());
+            browser.open(site.getUrl());
             
             if (site.getLoginType() != LoginType.NONE) {
-                handleLogin(site);
+                if (isLoginRequired(site, browser)) {
+                    if (sessionRestored) {
+                        sessionCacheService.recordRejected(site);
+                    }
+                    handleLogin(site, browser);
+                    sessionCacheService.save(site, driver);
+                } else {
+                    if (sessionRestored) {
+                        sessionCacheService.recordAccepted(site);
+                    }
+                    log.info("Reusing authenticated session for site: {}", site.getName());
+                }
             }
             
-            Selenide.sleep(3000);
+            pageReadinessService.awaitReady(site, driver);
+            requestBlockingService.recordPageCost(site, driver, blocked);
             
-            byte[] screenshotBytes = ((org.openqa.selenium.TakesScreenshot) driver).getScreenshotAs(org.openqa.selenium.OutputType.BYTES);
+            DevToolsCaptureService.CapturedImage image = devToolsCaptureService.capture(site, driver);
+            
+            ImageStoreService.StoredImage stored;
+            try {
+                stored = image.getFile() != null
+                    ? imageStoreService.store(image.getFile())
+                    : imageStoreService.store(image.getBytes());
+            } finally {
+                image.discard();
+            }
             
-            Screenshot screenshot = new Screenshot();
-            screenshot.setName(site.getName());
-            screenshot.setUrl(site.getUrl());
-            screenshot.setType("png");
-            screenshot.setCreatedAt(LocalDateTime.now());
-            screenshot.setImageData(screenshotBytes);
-            screenshot.setSite(site);
+            Screenshot savedScreenshot;
+            try {
+                Screenshot screenshot = new Screenshot();
+                screenshot.setName(site.getName());
+                screenshot.setUrl(site.getUrl());
+                screenshot.setType(image.getType());
+                screenshot.setCreatedAt(LocalDateTime.now());
+                screenshot.setImageHash(stored.getHash());
+                screenshot.setSize(stored.getSize());
+                screenshot.setSite(site);
+                
+                savedScreenshot = screenshotRepository.save(screenshot);
+            } catch (RuntimeException e) {
+                imageStoreService.release(stored.getHash());
+                throw e;
+            }
             
-            Screenshot savedScreenshot = screenshotRepository.save(screenshot);
-            log.info("Screenshot saved with ID: {}", savedScreenshot.getId());
+            siteRepository.advanceLatestScreenshot(site.getId(), savedScreenshot.getId());
+            latestScreenshotCache.invalidate(site.getName());
+            log.info("Screenshot saved with ID: {} ({} bytes, image {})",
+                savedScreenshot.getId(), stored.getSize(), stored.getHash());
             
             return savedScreenshot;
             
         } catch (Exception e) {
             log.error("Error taking screenshot for site: {}", site.getName(), e);
             throw new RuntimeException("Failed to take screenshot", e);
-        } finally {
-            if (driver != null) {
-                webDriverManager.releaseDriver();
-            }
         }
     }
     
-    private void handleLogin(Site site) {
+    /**
+     * A pooled driver may still hold a session for the site. The session is only
+     * trusted when opening the site URL did not land on its login form.
+     */
+    private boolean isLoginRequired(Site site, SelenideDriver browser) {
+        String currentUrl = browser.url();
+        switch (site.getLoginType()) {
+            case JENKINS:
+                return currentUrl.contains("/login") || browser.$("input[name='j_username']").exists();
+            case GITHUB:
+                return currentUrl.contains("/login") || currentUrl.contains("/session")
+                    || browser.$("input[name='login']").exists();
+            case NEWRELIC:
+                return currentUrl.contains("login.newrelic.com") || browser.$("input[type='email']").exists();
+            default:
+                return true;
+        }
+    }
+    
+    private void handleLogin(Site site, SelenideDriver browser) {
         try {
             switch (site.getLoginType()) {
                 case JENKINS:
-                    handleJenkinsLogin(site);
+                    handleJenkinsLogin(site, browser);
                     break;
                 case GITHUB:
-                    handleGithubLogin(site);
+                    handleGithubLogin(site, browser);
                     break;
                 case NEWRELIC:
-                    handleNewRelicLogin(site);
+                    handleNewRelicLogin(site, browser);
                     break;
                 default:
                     log.warn("Unknown login type: {}", site.getLoginType());
@@ -105,13 +231,14 @@ public class ScreenshotService {
         }
     }
     
-    private void handleJenkinsLogin(Site site) {
+    private void handleJenkinsLogin(Site site, SelenideDriver browser) {
         log.info("Handling Jenkins login for user: {}", site.getUsername());
         try {
-            $("input[name='j_username']").shouldBe(visible).setValue(site.getUsername());
-            $("input[name='j_password']").shouldBe(visible).setValue(site.getPassword());
-            $("input[type='submit']").shouldBe(visible).click();
-            Selenide.sleep(3000);
+            browser.$("input[name='j_username']").shouldBe(visible).setValue(site.getUsername());
+            browser.$("input[name='j_password']").shouldBe(visible).setValue(site.getPassword());
+            browser.$("input[type='submit']").shouldBe(visible).click();
+            pageReadinessService.awaitLogin(site, browser.getWebDriver(),
+                d -> d.findElements(By.name("j_username")).isEmpty() && !d.getCurrentUrl().contains("/login"));
             log.info("Jenkins login completed successfully");
         } catch (Exception e) {
             log.error("Error during Jenkins login", e);
@@ -119,13 +246,15 @@ public class ScreenshotService {
         }
     }
     
-    private void handleGithubLogin(Site site) {
+    private void handleGithubLogin(Site site, SelenideDriver browser) {
         log.info("Handling GitHub login for user: {}", site.getUsername());
         try {
-            $("input[name='login']").shouldBe(visible).setValue(site.getUsername());
-            $("input[name='password']").shouldBe(visible).setValue(site.getPassword());
-            $("input[type='submit']").shouldBe(visible).click();
-            Selenide.sleep(3000);
+            browser.$("input[name='login']").shouldBe(visible).setValue(site.getUsername());
+            browser.$("input[name='password']").shouldBe(visible).setValue(site.getPassword());
+            browser.$("input[type='submit']").shouldBe(visible).click();
+            pageReadinessService.awaitLogin(site, browser.getWebDriver(),
+                d -> d.findElements(By.name("login")).isEmpty()
+                    && !d.getCurrentUrl().contains("/login") && !d.getCurrentUrl().contains("/session"));
             log.info("GitHub login completed successfully");
         } catch (Exception e) {
             log.error("Error during GitHub login", e);
@@ -133,17 +262,16 @@ public class ScreenshotService {
         }
     }
     
-    private void handleNewRelicLogin(Site site) {
+    private void handleNewRelicLogin(Site site, SelenideDriver browser) {
         log.info("Handling New Relic login for user: {}", site.getUsername());
         try {
-            $("input[type='email']").shouldBe(visible).setValue(site.getUsername());
-            $("button[type='submit']").shouldBe(visible).click();
-            Selenide.sleep(5000);
-            if (WebDriverRunner.url().contains("accounts.google.com")) {
-                log.info("Google SSO detected, waiting for automatic redirect...");
-                Selenide.sleep(10000);
-            }
-            Selenide.sleep(5000);
+            browser.$("input[type='email']").shouldBe(visible).setValue(site.getUsername());
+            browser.$("button[type='submit']").shouldBe(visible).click();
+            // Google SSO redirects back on its own; wait until both login hosts are left behind
+            pageReadinessService.awaitLogin(site, browser.getWebDriver(), d -> {
+                String url = d.getCurrentUrl();
+                return !url.contains("login.newrelic.com") && !url.contains("accounts.google.com");
+            });
             log.info("New Relic login completed successfully");
         } catch (Exception e) {
             log.error("Error during New Relic login", e);
@@ -151,27 +279,90 @@ public class ScreenshotService {
         }
     }
     
-    @Scheduled(fixedRate = 60000)
-    public void processScreenshotTasks() {
-        log.debug("Checking for due screenshot tasks...");
-        
-        List<ScreenshotTask> dueTasks = taskRepository.findDueTasks(LocalDateTime.now());
-        
-        for (ScreenshotTask task : dueTasks) {
-            processScreenshotTaskAsync(task);
+    /**
+     * Queue a capture for a screenshot task that has come due. The future
+     * completes once the capture has run, or right away if it was not queued.
+     */
+    public CompletableFuture<Void> runScheduledTask(Long taskId) {
+        ScreenshotTask task = taskRepository.findById(taskId).orElse(null);
+        if (task == null || !task.isActive()) {
+            return CompletableFuture.completedFuture(null);
         }
+        if (!queuedTaskIds.add(task.getId())) {
+            // Still waiting from an earlier run
+            return CompletableFuture.completedFuture(null);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        // A task more than a whole interval late is catching up on missed runs
+        CaptureExecutor.Priority priority = task.getScheduledTime().plus(task.getTaskInterval()).isBefore(now)
+            ? CaptureExecutor.Priority.BACKFILL
+            : CaptureExecutor.Priority.SCHEDULED;
+        try {
+            return captureAsync(task.getSite(), priority, "task " + task.getId() + " for " + task.getSite().getName(),
+                    () -> log.info("Processing screenshot task for site: {} at {} with interval: {}",
+                        task.getSite().getName(), task.getScheduledTime(), task.getTaskInterval()))
+                .handle((screenshot, error) -> {
+                    try {
+                        completeScreenshotTask(task, error);
+                    } finally {
+                        queuedTaskIds.remove(task.getId());
+                    }
+                    return (Void) null;
+                });
+        } catch (CaptureRejectedException e) {
+            queuedTaskIds.remove(task.getId());
+            deferScreenshotTask(task, priority, now);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Skip a task that could not be queued to its next slot after now, so an
+     * overloaded pool sheds scheduled work instead of piling it up.
+     */
+    private void deferScreenshotTask(ScreenshotTask task, CaptureExecutor.Priority priority, LocalDateTime now) {
+        Duration interval = task.getTaskInterval();
+        LocalDateTime next = task.getScheduledTime();
+        if (interval == null || interval.isZero() || interval.isNegative()) {
+            next = now.plusMinutes(1);
+        }
+        while (!next.isAfter(now)) {
+            next = next.plus(interval);
+        }
+        captureExecutor.recordDeferred(priority);
+        if (taskRepository.advanceScheduledTime(task.getId(), task.getScheduledTime(), next) == 0) {
+            log.info("Screenshot task for site: {} changed while it was deferred, keeping the change",
+                task.getSite().getName());
+            return;
+        }
+        log.warn("Capture queue full, deferred screenshot task for site: {} to {}", task.getSite().getName(), next);
     }
     
-    @Async("webDriverTaskExecutor")
-    public void processScreenshotTaskAsync(ScreenshotTask task) {
+    /**
+     * Move a task that has run to its next slot. The task may have waited in
+     * the capture queue, so it is read again: a task deactivated or given a new
+     * time meanwhile keeps that change, and a new interval is honoured.
+     */
+    private void completeScreenshotTask(ScreenshotTask task, Throwable error) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            log.error("Error processing screenshot task for site: {}", task.getSite().getName(), cause);
+            return;
+        }
         try {
-            log.info("Processing screenshot task for site: {} at {} with interval: {}", 
-                task.getSite().getName(), task.getScheduledTime(), task.getTaskInterval());
-            
-            takeScreenshot(task.getSite());
-            
-            task.setScheduledTime(task.getScheduledTime().plus(task.getTaskInterval()));
-            taskRepository.save(task);
+            ScreenshotTask current = taskRepository.findById(task.getId()).orElse(null);
+            if (current == null || !current.isActive()) {
+                log.info("Screenshot task for site: {} was removed or deactivated while it ran",
+                    task.getSite().getName());
+                return;
+            }
+            LocalDateTime next = task.getScheduledTime().plus(current.getTaskInterval());
+            if (taskRepository.advanceScheduledTime(task.getId(), task.getScheduledTime(), next) == 0) {
+                log.info("Screenshot task for site: {} was changed while it ran, keeping the change",
+                    task.getSite().getName());
+                return;
+            }
             
             log.info("Screenshot task completed for site: {}", task.getSite().getName());
             
@@ -180,11 +371,114 @@ public class ScreenshotService {
         }
     }
     
+    /**
+     * The newest screenshot of a site, by primary key through the site's latest
+     * pointer. Sites without a usable pointer fall back to one indexed, limited
+     * query and get their pointer set from it.
+     */
     public Screenshot getLatestScreenshot(String siteName) {
-        return screenshotRepository.findLatestBySiteName(siteName)
+        Site site = siteRepository.findByName(siteName)
+            .orElseThrow(() -> new RuntimeException("Site not found: " + siteName));
+        
+        if (site.getLatestScreenshotId() != null) {
+            Optional<Screenshot> latest = screenshotRepository.findById(site.getLatestScreenshotId());
+            if (latest.isPresent()) {
+                return latest.get();
+            }
+        }
+        
+        Screenshot latest = screenshotRepository.findFirstBySiteOrderByCreatedAtDescIdDesc(site)
             .orElseThrow(() -> new RuntimeException("No screenshot found for site: " + siteName));
+        siteRepository.advanceLatestScreenshot(site.getId(), latest.getId());
+        return latest;
+    }
+    
+    /**
+     * The latest screenshot of a site from the in-memory cache, loading it and
+     * its bytes (when they fit the cache) on a miss.
+     */
+    public LatestScreenshotCache.CachedScreenshot getLatestCached(String siteName) {
+        return latestScreenshotCache.get(siteName, this::loadLatest);
+    }
+    
+    private LatestScreenshotCache.CachedScreenshot loadLatest(String siteName) {
+        Screenshot screenshot = getLatestScreenshot(siteName);
+        byte[] bytes = null;
+        if (screenshot.getImageHash() == null) {
+            bytes = getLegacyImageData(screenshot);
+        } else if (screenshot.getSize() != null && latestScreenshotCache.fits(screenshot.getSize())) {
+            bytes = imageStoreService.read(screenshot.getImageHash());
+        }
+        return new LatestScreenshotCache.CachedScreenshot(screenshot.getId(), siteName, screenshot.getType(),
+            getETag(screenshot), screenshot.getCreatedAt(), screenshot.getImageHash(), bytes);
+    }
+    
+    /**
+     * Strong ETag of a screenshot: its content hash, or its id for legacy rows,
+     * whose bytes never change either.
+     */
+    public String getETag(Screenshot screenshot) {
+        return screenshot.getImageHash() != null ? screenshot.getImageHash() : "screenshot-" + screenshot.getId();
+    }
+    
+    public Resource getImageResource(LatestScreenshotCache.CachedScreenshot cached) {
+        if (cached.getBytes() != null) {
+            return new ByteArrayResource(cached.getBytes());
+        }
+        if (cached.getImageHash() != null) {
+            return new FileSystemResource(imageStoreService.resolve(cached.getImageHash()));
+        }
+        return new ByteArrayResource(screenshotImageRepository.findById(cached.getScreenshotId())
+            .map(ScreenshotImage::getImageData)
+            .orElseThrow(() -> new RuntimeException("No image data for screenshot: " + cached.getScreenshotId())));
+    }
+    
+    /**
+     * The image of a screenshot as a resource that can be streamed without
+     * loading it: the store file, or the legacy bytes when not migrated yet.
+     */
+    public Resource getImageResource(Screenshot screenshot) {
+        if (screenshot.getImageHash() != null) {
+            return new FileSystemResource(imageStoreService.resolve(screenshot.getImageHash()));
+        }
+        return new ByteArrayResource(getLegacyImageData(screenshot));
+    }
+    
+    /**
+     * A file holding the image of a screenshot, or null when it is only in the
+     * legacy image column.
+     */
+    public File getImageFile(Screenshot screenshot) {
+        if (screenshot.getImageHash() == null) {
+            return null;
+        }
+        return imageStoreService.resolve(screenshot.getImageHash()).toFile();
+    }
+    
+    /**
+     * The bytes of a screenshot that has not been moved to the image store yet.
+     */
+    public byte[] getLegacyImageData(Screenshot screenshot) {
+        return screenshotImageRepository.findById(screenshot.getId())
+            .map(ScreenshotImage::getImageData)
+            .orElseThrow(() -> new RuntimeException("No image data for screenshot: " + screenshot.getId()));
+    }
+    
+    /**
+     * Delete all screenshots of a site and drop their references in the image store.
+     */
+    public void deleteScreenshots(Site site) {
+        List<Screenshot> screenshots = screenshotRepository.findBySiteOrderByCreatedAtDesc(site);
+        screenshotRepository.deleteAll(screenshots);
+        latestScreenshotCache.invalidate(site.getName());
+        for (Screenshot screenshot : screenshots) {
+            imageStoreService.release(screenshot.getImageHash());
+        }
     }
     
+    /**
+     * Capture the site for a waiting caller, ahead of scheduled captures.
+     */
     public Screenshot takeScreenshotNow(String siteName) {
         Site site = siteRepository.findByName(siteName)
             .orElseThrow(() -> new RuntimeException("Site not found: " + siteName));
@@ -0,0 +1,241 @@
+package com.dlocal.slackshot.service;
+
+import com.dlocal.slackshot.model.Site;
+import com.dlocal.slackshot.model.SiteSession;
+import com.dlocal.slackshot.repository.SiteSessionRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persists the cookies and localStorage of a logged-in site so a fresh driver
+ * can start with the session instead of going through the login flow. Both
+ * hold live credentials, so they are stored encrypted by SessionCipher.
+ */
+@Service
+public class SessionCacheService {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionCacheService.class);
+
+    /**
+     * Fields of a CDP Network.Cookie that are accepted back by Network.setCookies.
+     */
+    private static final Set<String> COOKIE_PARAMS = Set.of(
+        "name", "value", "domain", "path", "secure", "httpOnly", "sameSite", "expires", "priority"
+    );
+
+    @Autowired
+    private SiteSessionRepository siteSessionRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SessionCipher sessionCipher;
+
+    @Value("${session.cache.ttl-minutes:720}")
+    private long ttlMinutes;
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong rejections = new AtomicLong(0);
+
+    /**
+     * Inject the stored session for the site into the leased driver before the
+     * site is opened. Returns false when there is nothing usable to inject.
+     */
+    public boolean restore(Site site, WebDriverLease lease) {
+        WebDriver driver = lease.getDriver();
+        if (!(driver instanceof HasCdp)) {
+            return false;
+        }
+
+        SiteSession session = siteSessionRepository.findBySite(site).orElse(null);
+        if (session == null || session.isExpired(LocalDateTime.now())) {
+            misses.incrementAndGet();
+            return false;
+        }
+
+        String storedCookies;
+        String storedLocalStorage;
+        try {
+            storedCookies = sessionCipher.decrypt(session.getCookies(), context(site));
+            storedLocalStorage = sessionCipher.decrypt(session.getLocalStorage(), context(site));
+        } catch (RuntimeException e) {
+            // Written under another key, or in clear text before sessions were encrypted
+            log.info("Dropping cached session for site: {} that cannot be decrypted", site.getName());
+            misses.incrementAndGet();
+            evict(site);
+            return false;
+        }
+
+        try {
+            HasCdp cdp = (HasCdp) driver;
+            List<Map<String, Object>> cookies = objectMapper.readValue(storedCookies,
+                new TypeReference<List<Map<String, Object>>>() {});
+            cdp.executeCdpCommand("Network.setCookies", Map.of("cookies", cookies));
+
+            // Only one seeding script per browser; the pool removes it when the session is cleared
+            PooledDriver pooled = lease.pooledDriver();
+            if (pooled.getSessionScriptId() != null) {
+                cdp.executeCdpCommand("Page.removeScriptToEvaluateOnNewDocument",
+                    Map.of("identifier", pooled.getSessionScriptId()));
+                pooled.setSessionScriptId(null);
+            }
+            if (session.getOrigin() != null && storedLocalStorage != null) {
+                Map<String, Object> script = cdp.executeCdpCommand("Page.addScriptToEvaluateOnNewDocument",
+                    Map.of("source", localStorageScript(session.getOrigin(), storedLocalStorage)));
+                pooled.setSessionScriptId((String) script.get("identifier"));
+            }
+
+            log.info("Restored {} cached cookies for site: {}", cookies.size(), site.getName());
+            return true;
+        } catch (Exception e) {
+            log.warn("Could not restore cached session for site: {}", site.getName(), e);
+            misses.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * The injected session got the site past its login form.
+     */
+    public void recordAccepted(Site site) {
+        hits.incrementAndGet();
+        log.debug("Cached session accepted for site: {}", site.getName());
+    }
+
+    /**
+     * The injected session was rejected by the site, so it is dropped.
+     */
+    public void recordRejected(Site site) {
+        rejections.incrementAndGet();
+        log.info("Cached session rejected for site: {}, falling back to login", site.getName());
+        evict(site);
+    }
+
+    /**
+     * Store the cookies of every domain in the browser, plus localStorage of the
+     * page currently open, after a successful login.
+     */
+    public void save(Site site, WebDriver driver) {
+        if (!(driver instanceof HasCdp)) {
+            return;
+        }
+
+        try {
+            Map<String, Object> result = ((HasCdp) driver).executeCdpCommand("Network.getAllCookies", Map.of());
+            List<Map<String, Object>> cookies = new ArrayList<>();
+            Object rawCookies = result.get("cookies");
+            if (rawCookies instanceof List) {
+                for (Object rawCookie : (List<?>) rawCookies) {
+                    cookies.add(toCookieParam((Map<?, ?>) rawCookie));
+                }
+            }
+
+            String origin = null;
+            String localStorage = null;
+            if (driver instanceof JavascriptExecutor) {
+                JavascriptExecutor js = (JavascriptExecutor) driver;
+                origin = (String) js.executeScript("return window.location.origin;");
+                localStorage = (String) js.executeScript("return JSON.stringify(Object.assign({}, window.localStorage));");
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            SiteSession session = siteSessionRepository.findBySite(site).orElseGet(SiteSession::new);
+            session.setSite(site);
+            session.setCookies(sessionCipher.encrypt(objectMapper.writeValueAsString(cookies), context(site)));
+            session.setOrigin(origin);
+            session.setLocalStorage(sessionCipher.encrypt(localStorage, context(site)));
+            session.setCapturedAt(now);
+            session.setExpiresAt(now.plusMinutes(ttlMinutes));
+            siteSessionRepository.save(session);
+
+            log.info("Cached {} cookies for site: {}", cookies.size(), site.getName());
+        } catch (Exception e) {
+            log.warn("Could not cache session for site: {}", site.getName(), e);
+        }
+    }
+
+    public void evict(Site site) {
+        siteSessionRepository.deleteBySite(site);
+    }
+
+    public SessionCacheStats getStats() {
+        SessionCacheStats stats = new SessionCacheStats();
+        stats.setHits(hits.get());
+        stats.setMisses(misses.get());
+        stats.setRejections(rejections.get());
+        stats.setStoredSessions(siteSessionRepository.count());
+        return stats;
+    }
+
+    private static String context(Site site) {
+        return "site:" + site.getId();
+    }
+
+    private Map<String, Object> toCookieParam(Map<?, ?> cookie) {
+        Map<String, Object> param = new LinkedHashMap<>();
+        cookie.forEach((key, value) -> {
+            if (COOKIE_PARAMS.contains(key.toString())) {
+                param.put(key.toString(), value);
+            }
+        });
+        if (Boolean.TRUE.equals(cookie.get("session"))) {
+            param.remove("expires");
+        }
+        return param;
+    }
+
+    /**
+     * Script run before any page script on every navigation. It only fills in
+     * keys that are missing, and only on the origin the session was captured on.
+     */
+    private String localStorageScript(String origin, String localStorageJson) throws Exception {
+        return "if (window.location.origin === " + objectMapper.writeValueAsString(origin) + ") {"
+            + " var items = " + localStorageJson + ";"
+            + " Object.keys(items).forEach(function (key) {"
+            + "  if (window.localStorage.getItem(key) === null) { window.localStorage.setItem(key, items[key]); }"
+            + " });"
+            + "}";
+    }
+
+    public static class SessionCacheStats {
+        private long hits;
+        private long misses;
+        private long rejections;
+        private long storedSessions;
+
+        public long getHits() { return hits; }
+        public void setHits(long hits) { this.hits = hits; }
+
+        public long getMisses() { return misses; }
+        public void setMisses(long misses) { this.misses = misses; }
+
+        public long getRejections() { return rejections; }
+        public void setRejections(long rejections) { this.rejections = rejections; }
+
+        public long getStoredSessions() { return storedSessions; }
+        public void setStoredSessions(long storedSessions) { this.storedSessions = storedSessions; }
+
+        public double getHitRatio() {
+            long lookups = hits + misses + rejections;
+            return lookups > 0 ? (double) hits / lookups : 0;
+        }
+    }
+}
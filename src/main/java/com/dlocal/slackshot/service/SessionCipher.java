@@ -0,0 +1,97 @@
+package com.dlocal.slackshot.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Encrypts cached login sessions before they are written to the database, with
+ * AES-GCM under session.cache.encryption-key. The associated data ties each
+ * value to its site, so a row copied onto another site does not decrypt.
+ *
+ * Without a configured key a random one is made at startup: sessions are then
+ * still never stored in clear text, but do not survive a restart.
+ */
+@Component
+public class SessionCipher {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionCipher.class);
+
+    private static final String PREFIX = "v1:";
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    @Value("${session.cache.encryption-key:}")
+    private String configuredKey;
+
+    private final SecureRandom random = new SecureRandom();
+    private SecretKey key;
+
+    @PostConstruct
+    public void init() {
+        byte[] keyBytes;
+        if (configuredKey == null || configuredKey.isBlank()) {
+            keyBytes = new byte[32];
+            random.nextBytes(keyBytes);
+            log.warn("No session.cache.encryption-key set, cached sessions will not survive a restart");
+        } else {
+            keyBytes = Base64.getDecoder().decode(configuredKey.trim());
+            if (keyBytes.length != 16 && keyBytes.length != 24 && keyBytes.length != 32) {
+                throw new IllegalStateException("session.cache.encryption-key must be 16, 24 or 32 bytes, base64 encoded");
+            }
+        }
+        key = new SecretKeySpec(keyBytes, "AES");
+    }
+
+    public String encrypt(String plaintext, String context) {
+        if (plaintext == null) {
+            return null;
+        }
+        try {
+            byte[] iv = new byte[IV_BYTES];
+            random.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(context.getBytes(StandardCharsets.UTF_8));
+            byte[] sealed = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+            return PREFIX + Base64.getEncoder().encodeToString(
+                ByteBuffer.allocate(iv.length + sealed.length).put(iv).put(sealed).array());
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Could not encrypt session", e);
+        }
+    }
+
+    /**
+     * @throws RuntimeException if the value was not sealed under the current
+     *         key for this context, or was stored before sessions were encrypted
+     */
+    public String decrypt(String sealed, String context) {
+        if (sealed == null) {
+            return null;
+        }
+        if (!sealed.startsWith(PREFIX)) {
+            throw new RuntimeException("Session is not encrypted");
+        }
+        try {
+            byte[] bytes = Base64.getDecoder().decode(sealed.substring(PREFIX.length()));
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, bytes, 0, IV_BYTES));
+            cipher.updateAAD(context.getBytes(StandardCharsets.UTF_8));
+            return new String(cipher.doFinal(bytes, IV_BYTES, bytes.length - IV_BYTES), StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new RuntimeException("Could not decrypt session", e);
+        }
+    }
+}
@@ -12,11 +12,10 @@ import com.slack.api.methods.response.chat.ChatPostMessageResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.File;
 import java.io.IOException;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 
@@ -40,10 +39,17 @@ public class SlackService {
         try {
             log.info("Sending screenshot to Slack channel: {}", channel);
             
-            FilesUploadRequest uploadRequest = FilesUploadRequest.builder()
+            FilesUploadRequest.FilesUploadRequestBuilder upload = FilesUploadRequest.builder();
+            File imageFile = screenshotService.getImageFile(screenshot);
+            if (imageFile != null) {
+                upload.file(imageFile);
+            } else {
+                upload.fileData(screenshotService.getLegacyImageData(screenshot));
+            }
+            
+            FilesUploadRequest uploadRequest = upload
                 .token(slackToken)
                 .channels(List.of(channel))
-                .fileData(screenshot.getImageData())
                 .filename(generateFilename(screenshot))
                 .title("Screenshot: " + screenshot.getName())
                 .initialComment(":ghost: Screenshot from " + screenshot.getName() + " at " + 
@@ -92,30 +98,28 @@ public class SlackService {
     }
 
     /**
-     * Scheduled task that runs every minute to check for due Slack tasks
+     * Send the latest screenshot for a Slack task that has come due
      */
-    @Scheduled(fixedRate = 60000)
-    public void processSlackTasks() {
-        log.debug("Checking for due Slack tasks...");
-        
-        List<SlackTask> dueTasks = slackTaskRepository.findDueTasks(LocalDateTime.now());
-        
-        for (SlackTask task : dueTasks) {
-            try {
-                log.info("Processing Slack task for site: {}", task.getSite().getName());
-                
-                Screenshot screenshot = screenshotService.getLatestScreenshot(task.getSite().getName());
-                
-                sendScreenshotToSlack(screenshot, task.getSlackToken(), task.getSlackChannel());
-                
-                task.setScheduledTime(task.getScheduledTime().plus(task.getTaskInterval()));
-                slackTaskRepository.save(task);
-                
-                log.info("Slack task completed for site: {}", task.getSite().getName());
-                
-            } catch (Exception e) {
-                log.error("Error processing Slack task for site: {}", task.getSite().getName(), e);
-            }
+    public void runScheduledTask(Long taskId) {
+        SlackTask task = slackTaskRepository.findById(taskId).orElse(null);
+        if (task == null || !task.isActive()) {
+            return;
+        }
+
+        try {
+            log.info("Processing Slack task for site: {}", task.getSite().getName());
+            
+            Screenshot screenshot = screenshotService.getLatestScreenshot(task.getSite().getName());
+            
+            sendScreenshotToSlack(screenshot, task.getSlackToken(), task.getSlackChannel());
+            
+            task.setScheduledTime(task.getScheduledTime().plus(task.getTaskInterval()));
+            slackTaskRepository.save(task);
+            
+            log.info("Slack task completed for site: {}", task.getSite().getName());
+            
+        } catch (Exception e) {
+            log.error("Error processing Slack task for site: {}", task.getSite().getName(), e);
         }
     }
     
@@ -0,0 +1,163 @@
+package com.dlocal.slackshot.service;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a PNG of any height from tiles appended top to bottom. Rows are
+ * deflated straight to a scratch file as they arrive, and the final file is
+ * assembled once the height is known, so memory use is bounded by one tile
+ * and one row regardless of the image height.
+ */
+public class StreamingPngEncoder implements Closeable {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int IDAT_CHUNK_SIZE = 64 * 1024;
+    private static final int BYTES_PER_PIXEL = 3;
+    private static final int FILTER_SUB = 1;
+    private static final int BACKGROUND = 0xFFFFFF;
+
+    private final Path target;
+    private final Path scratch;
+    private final DeflaterOutputStream idat;
+    private final Deflater deflater;
+
+    private int width = -1;
+    private int height;
+    private int[] pixels;
+    private byte[] row;
+
+    public StreamingPngEncoder(Path target) throws IOException {
+        this.target = target;
+        this.scratch = Files.createTempFile(target.toAbsolutePath().getParent(), "idat-", ".tmp");
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        this.idat = new DeflaterOutputStream(new BufferedOutputStream(Files.newOutputStream(scratch)), deflater, IDAT_CHUNK_SIZE);
+    }
+
+    /**
+     * Append a tile below the rows written so far. The first tile fixes the
+     * image width; later tiles are cropped or padded with white to match it.
+     */
+    public void writeTile(BufferedImage tile) throws IOException {
+        if (width < 0) {
+            width = tile.getWidth();
+            pixels = new int[width];
+            row = new byte[1 + width * BYTES_PER_PIXEL];
+        }
+
+        int copyWidth = Math.min(width, tile.getWidth());
+        for (int y = 0; y < tile.getHeight(); y++) {
+            tile.getRGB(0, y, copyWidth, 1, pixels, 0, width);
+            for (int x = copyWidth; x < width; x++) {
+                pixels[x] = BACKGROUND;
+            }
+            writeRow();
+        }
+    }
+
+    private void writeRow() throws IOException {
+        row[0] = FILTER_SUB;
+        int previous = 0;
+        for (int x = 0; x < width; x++) {
+            int rgb = pixels[x];
+            int offset = 1 + x * BYTES_PER_PIXEL;
+            row[offset] = (byte) (((rgb >> 16) - (previous >> 16)) & 0xFF);
+            row[offset + 1] = (byte) (((rgb >> 8) - (previous >> 8)) & 0xFF);
+            row[offset + 2] = (byte) ((rgb - previous) & 0xFF);
+            previous = rgb;
+        }
+        idat.write(row);
+        height++;
+    }
+
+    /**
+     * Complete the PNG at the target path and return it.
+     */
+    public Path finish() throws IOException {
+        if (width < 0) {
+            throw new IllegalStateException("No tiles were written");
+        }
+        idat.close();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target)));
+             InputStream compressed = Files.newInputStream(scratch)) {
+            out.write(SIGNATURE);
+
+            DataChunk header = new DataChunk(13);
+            header.putInt(width);
+            header.putInt(height);
+            header.put(8);  // bit depth
+            header.put(2);  // color type: truecolor RGB
+            header.put(0);  // compression
+            header.put(0);  // filter method
+            header.put(0);  // no interlace
+            writeChunk(out, "IHDR", header.bytes, header.length);
+
+            byte[] buffer = new byte[IDAT_CHUNK_SIZE];
+            int read;
+            while ((read = compressed.readNBytes(buffer, 0, buffer.length)) > 0) {
+                writeChunk(out, "IDAT", buffer, read);
+            }
+
+            writeChunk(out, "IEND", new byte[0], 0);
+        } finally {
+            Files.deleteIfExists(scratch);
+        }
+        return target;
+    }
+
+    public int getWidth() { return Math.max(width, 0); }
+    public int getHeight() { return height; }
+
+    private static void writeChunk(DataOutputStream out, String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            idat.close();
+        } finally {
+            deflater.end();
+            Files.deleteIfExists(scratch);
+        }
+    }
+
+    private static class DataChunk {
+        private final byte[] bytes;
+        private int length;
+
+        DataChunk(int size) {
+            this.bytes = new byte[size];
+        }
+
+        void put(int value) {
+            bytes[length++] = (byte) value;
+        }
+
+        void putInt(int value) {
+            put(value >>> 24);
+            put(value >>> 16);
+            put(value >>> 8);
+            put(value);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.dlocal.slackshot.service;
+
+import com.dlocal.slackshot.model.ScreenshotTask;
+import com.dlocal.slackshot.model.SlackTask;
+import com.dlocal.slackshot.repository.ScreenshotTaskRepository;
+import com.dlocal.slackshot.repository.SlackTaskRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fires screenshot and Slack tasks at their scheduled time from an in-memory
+ * delay queue instead of polling the database for due tasks. Active tasks are
+ * loaded once at startup; TaskController keeps the queue in sync as tasks are
+ * added, changed or deactivated, and a fired task is put back at its next
+ * scheduled time once it has run.
+ *
+ * Rescheduling a task only supersedes its earlier entry: stale entries stay in
+ * the queue and are dropped when they come due.
+ */
+@Service
+public class TaskSchedulerService {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskSchedulerService.class);
+
+    public enum TaskType {
+        SCREENSHOT,
+        SLACK
+    }
+
+    @Autowired
+    private ScreenshotTaskRepository screenshotTaskRepository;
+
+    @Autowired
+    private SlackTaskRepository slackTaskRepository;
+
+    @Autowired
+    private ScreenshotService screenshotService;
+
+    @Autowired
+    private SlackService slackService;
+
+    @Value("${tasks.scheduler.dispatch-threads:2}")
+    private int dispatchThreads;
+
+    @Value("${tasks.scheduler.retry-seconds:60}")
+    private long retrySeconds;
+
+    private final DelayQueue<ScheduledEntry> queue = new DelayQueue<>();
+    private final ConcurrentHashMap<String, Long> current = new ConcurrentHashMap<>();
+    private final AtomicLong generations = new AtomicLong(0);
+    private final Map<TaskType, TypeMetrics> metrics = new EnumMap<>(TaskType.class);
+    private final AtomicLong superseded = new AtomicLong(0);
+
+    private ExecutorService dispatcher;
+    private Thread timer;
+
+    @PostConstruct
+    public void init() {
+        for (TaskType type : TaskType.values()) {
+            metrics.put(type, new TypeMetrics());
+        }
+        dispatcher = Executors.newFixedThreadPool(dispatchThreads, r -> {
+            Thread t = new Thread(r, "task-dispatch");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (timer != null) {
+            timer.interrupt();
+        }
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * Load every active task and start firing them. Runs before other startup
+     * work so that tasks due at boot are not held up by it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void start() {
+        int screenshotTasks = 0;
+        for (ScreenshotTask task : screenshotTaskRepository.findByActiveTrue()) {
+            schedule(TaskType.SCREENSHOT, task.getId(), task.getScheduledTime());
+            screenshotTasks++;
+        }
+        int slackTasks = 0;
+        for (SlackTask task : slackTaskRepository.findByActiveTrue()) {
+            schedule(TaskType.SLACK, task.getId(), task.getScheduledTime());
+            slackTasks++;
+        }
+        log.info("Scheduled {} screenshot tasks and {} Slack tasks", screenshotTasks, slackTasks);
+
+        timer = new Thread(this::runTimer, "task-scheduler");
+        timer.setDaemon(true);
+        timer.start();
+    }
+
+    public void schedule(ScreenshotTask task) {
+        if (task.isActive()) {
+            schedule(TaskType.SCREENSHOT, task.getId(), task.getScheduledTime());
+        } else {
+            cancel(TaskType.SCREENSHOT, task.getId());
+        }
+    }
+
+    public void schedule(SlackTask task) {
+        if (task.isActive()) {
+            schedule(TaskType.SLACK, task.getId(), task.getScheduledTime());
+        } else {
+            cancel(TaskType.SLACK, task.getId());
+        }
+    }
+
+    /**
+     * Put a task back after its settings changed. A stored time that is not in
+     * the future means the task is due or running right now, so it is queued
+     * one interval from now instead of firing again at once; a run in progress
+     * replaces that entry when it finishes.
+     */
+    public void scheduleChanged(ScreenshotTask task) {
+        if (task.isActive()) {
+            schedule(TaskType.SCREENSHOT, task.getId(), notBeforeNow(task.getScheduledTime(), task.getTaskInterval()));
+        } else {
+            cancel(TaskType.SCREENSHOT, task.getId());
+        }
+    }
+
+    public void scheduleChanged(SlackTask task) {
+        if (task.isActive()) {
+            schedule(TaskType.SLACK, task.getId(), notBeforeNow(task.getScheduledTime(), task.getTaskInterval()));
+        } else {
+            cancel(TaskType.SLACK, task.getId());
+        }
+    }
+
+    private static LocalDateTime notBeforeNow(LocalDateTime scheduledTime, Duration interval) {
+        LocalDateTime now = LocalDateTime.now();
+        return scheduledTime.isAfter(now) ? scheduledTime : now.plus(interval);
+    }
+
+    /**
+     * Fire the task at the given time, replacing any time it was scheduled for.
+     */
+    public void schedule(TaskType type, Long taskId, LocalDateTime scheduledTime) {
+        long generation = generations.incrementAndGet();
+        current.put(key(type, taskId), generation);
+        long dueAt = scheduledTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        queue.put(new ScheduledEntry(type, taskId, dueAt, generation));
+        log.debug("Scheduled {} task {} at {}", type, taskId, scheduledTime);
+    }
+
+    public void cancel(TaskType type, Long taskId) {
+        if (current.remove(key(type, taskId)) != null) {
+            log.debug("Cancelled {} task {}", type, taskId);
+        }
+    }
+
+    private void runTimer() {
+        while (!Thread.currentThread().isInterrupted()) {
+            ScheduledEntry entry;
+            try {
+                entry = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            // Only the latest entry of a task fires, and only once
+            if (!current.remove(key(entry.type, entry.taskId), entry.generation)) {
+                superseded.incrementAndGet();
+                continue;
+            }
+            try {
+                dispatcher.execute(() -> fire(entry));
+            } catch (RuntimeException e) {
+                log.error("Could not dispatch {} task {}", entry.type, entry.taskId, e);
+            }
+        }
+    }
+
+    private void fire(ScheduledEntry entry) {
+        long now = System.currentTimeMillis();
+        // Tasks already overdue when queued fire as soon as possible; count from then
+        metrics.get(entry.type).recordFire(now - Math.max(entry.dueAt, entry.queuedAt));
+
+        CompletableFuture<Void> run = CompletableFuture.completedFuture(null);
+        try {
+            if (entry.type == TaskType.SCREENSHOT) {
+                // Completes once the capture has run on the capture executor
+                run = screenshotService.runScheduledTask(entry.taskId);
+            } else {
+                slackService.runScheduledTask(entry.taskId);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error running {} task {}", entry.type, entry.taskId, e);
+        }
+        run.whenComplete((result, error) -> {
+            if (error != null) {
+                log.error("Error running {} task {}", entry.type, entry.taskId, error);
+            }
+            reschedule(entry.type, entry.taskId);
+        });
+    }
+
+    /**
+     * Put a task that has run back at its stored time. A task whose time did not
+     * move past now (it failed, or is still catching up on missed runs) is
+     * retried after retry-seconds rather than straight away.
+     */
+    private void reschedule(TaskType type, Long taskId) {
+        try {
+            LocalDateTime next = type == TaskType.SCREENSHOT
+                ? screenshotTaskRepository.findById(taskId)
+                    .filter(ScreenshotTask::isActive).map(ScreenshotTask::getScheduledTime).orElse(null)
+                : slackTaskRepository.findById(taskId)
+                    .filter(SlackTask::isActive).map(SlackTask::getScheduledTime).orElse(null);
+            if (next == null) {
+                return;
+            }
+            LocalDateTime retryAt = LocalDateTime.now().plusSeconds(retrySeconds);
+            schedule(type, taskId, next.isAfter(LocalDateTime.now()) ? next : retryAt);
+        } catch (RuntimeException e) {
+            log.error("Could not reschedule {} task {}, retrying in {}s", type, taskId, retrySeconds, e);
+            schedule(type, taskId, LocalDateTime.now().plusSeconds(retrySeconds));
+        }
+    }
+
+    private static String key(TaskType type, Long taskId) {
+        return type + ":" + taskId;
+    }
+
+    public SchedulerStats getStats() {
+        SchedulerStats stats = new SchedulerStats();
+        stats.setPending(current.size());
+        stats.setSuperseded(superseded.get());
+        Map<String, TypeStats> types = new LinkedHashMap<>();
+        for (TaskType type : TaskType.values()) {
+            TypeMetrics m = metrics.get(type);
+            TypeStats typeStats = new TypeStats();
+            typeStats.setFired(m.fired.get());
+            typeStats.setLastLagMillis(m.lastLagMillis.get());
+            typeStats.setAverageLagMillis(m.fired.get() > 0 ? m.totalLagMillis.get() / m.fired.get() : 0);
+            typeStats.setMaxLagMillis(m.maxLagMillis.get());
+            types.put(type.name(), typeStats);
+        }
+        stats.setTypes(types);
+        return stats;
+    }
+
+    private static class ScheduledEntry implements Delayed {
+        private final TaskType type;
+        private final Long taskId;
+        private final long dueAt;
+        private final long generation;
+        private final long queuedAt = System.currentTimeMillis();
+
+        ScheduledEntry(TaskType type, Long taskId, long dueAt, long generation) {
+            this.type = type;
+            this.taskId = taskId;
+            this.dueAt = dueAt;
+            this.generation = generation;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAt, ((ScheduledEntry) other).dueAt);
+        }
+    }
+
+    private static class TypeMetrics {
+        private final AtomicLong fired = new AtomicLong(0);
+        private final AtomicLong lastLagMillis = new AtomicLong(0);
+        private final AtomicLong totalLagMillis = new AtomicLong(0);
+        private final AtomicLong maxLagMillis = new AtomicLong(0);
+
+        void recordFire(long lagMillis) {
+            long lag = Math.max(lagMillis, 0);
+            fired.incrementAndGet();
+            lastLagMillis.set(lag);
+            totalLagMillis.addAndGet(lag);
+            maxLagMillis.accumulateAndGet(lag, Math::max);
+        }
+    }
+
+    public static class SchedulerStats {
+        private int pending;
+        private long superseded;
+        private Map<String, TypeStats> types;
+
+        public int getPending() { return pending; }
+        public void setPending(int pending) { this.pending = pending; }
+
+        public long getSuperseded() { return superseded; }
+        public void setSuperseded(long superseded) { this.superseded = superseded; }
+
+        public Map<String, TypeStats> getTypes() { return types; }
+        public void setTypes(Map<String, TypeStats> types) { this.types = types; }
+    }
+
+    public static class TypeStats {
+        private long fired;
+        private long lastLagMillis;
+        private long averageLagMillis;
+        private long maxLagMillis;
+
+        public long getFired() { return fired; }
+        public void setFired(long fired) { this.fired = fired; }
+
+        public long getLastLagMillis() { return lastLagMillis; }
+        public void setLastLagMillis(long lastLagMillis) { this.lastLagMillis = lastLagMillis; }
+
+        public long getAverageLagMillis() { return averageLagMillis; }
+        public void setAverageLagMillis(long averageLagMillis) { this.averageLagMillis = averageLagMillis; }
+
+        public long getMaxLagMillis() { return maxLagMillis; }
+        public void setMaxLagMillis(long maxLagMillis) { this.maxLagMillis = maxLagMillis; }
+    }
+}
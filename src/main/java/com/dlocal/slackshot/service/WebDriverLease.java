@@ -0,0 +1,73 @@
+package com.dlocal.slackshot.service;
+
+import org.openqa.selenium.WebDriver;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A WebDriver checked out of the {@link WebDriverManager} pool.
+ * The lease is not bound to the thread that acquired it, so it can be handed
+ * to any executor; closing it returns the driver to the pool. Leases held past
+ * their deadline are reclaimed by the pool and their driver is discarded.
+ */
+public class WebDriverLease implements AutoCloseable {
+
+    private final long id;
+    private final PooledDriver pooledDriver;
+    private final Instant acquiredAt;
+    private final Instant deadline;
+    private final boolean sessionReused;
+    private final WebDriverManager pool;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    WebDriverLease(long id, PooledDriver pooledDriver, Instant acquiredAt, Instant deadline, boolean sessionReused,
+                   WebDriverManager pool) {
+        this.id = id;
+        this.pooledDriver = pooledDriver;
+        this.acquiredAt = acquiredAt;
+        this.deadline = deadline;
+        this.sessionReused = sessionReused;
+        this.pool = pool;
+    }
+
+    public long getId() { return id; }
+    public Instant getAcquiredAt() { return acquiredAt; }
+    public Instant getDeadline() { return deadline; }
+
+    /**
+     * True when the driver was already holding the requested site's session
+     * before this lease, false when it starts without that site's cookies.
+     */
+    public boolean isSessionReused() { return sessionReused; }
+
+    public WebDriver getDriver() {
+        if (closed.get()) {
+            throw new IllegalStateException("WebDriver lease " + id + " is no longer valid");
+        }
+        return pooledDriver.getDriver();
+    }
+
+    public boolean isExpired(Instant now) {
+        return now.isAfter(deadline);
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            pool.release(this);
+        }
+    }
+
+    /**
+     * Marks the lease as closed without returning the driver to the pool.
+     * Returns false if the holder already closed it.
+     */
+    boolean revoke() {
+        return closed.compareAndSet(false, true);
+    }
+
+    PooledDriver pooledDriver() {
+        return pooledDriver;
+    }
+}
@@ -1,185 +1,798 @@
 package com.dlocal.slackshot.service;
 
-import com.codeborne.selenide.WebDriverRunner;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.chromium.HasCdp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.List;
-import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
 
 @Service
 public class WebDriverManager {
 
     private static final Logger log = LoggerFactory.getLogger(WebDriverManager.class);
 
+    private static final long SLOT_RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    public enum RetirementReason {
+        MAX_USES,
+        MAX_AGE,
+        MAX_RSS,
+        LIVENESS,
+        CLEANUP_FAILED,
+        LEASE_EXPIRED,
+        SHRINK
+    }
+
+    @Autowired
+    private ChromeDriverFactory driverFactory;
+
+    @Autowired
+    private ChromeProcessMonitor processMonitor;
+
     @Value("${webdriver.pool.max-size:5}")
     private int maxPoolSize;
 
+    @Value("${webdriver.pool.min-size:2}")
+    private int minPoolSize;
+
+    @Value("${webdriver.pool.adaptive.enabled:true}")
+    private boolean adaptiveSizing;
+
     @Value("${webdriver.pool.timeout-seconds:30}")
     private int timeoutSeconds;
 
-    private final ConcurrentLinkedQueue<WebDriver> availableDrivers = new ConcurrentLinkedQueue<>();
-    private final ConcurrentHashMap<Thread, WebDriver> activeDrivers = new ConcurrentHashMap<>();
+    @Value("${webdriver.pool.lease-timeout-seconds:300}")
+    private int leaseTimeoutSeconds;
+
+    @Value("${webdriver.pool.reaper-interval-seconds:10}")
+    private int reaperIntervalSeconds;
+
+    @Value("${webdriver.pool.min-idle:2}")
+    private int configuredMinIdle;
+
+    @Value("${webdriver.pool.replenish-interval-seconds:5}")
+    private int replenishIntervalSeconds;
+
+    @Value("${webdriver.pool.max-uses:50}")
+    private int maxUses;
+
+    @Value("${webdriver.pool.max-age-minutes:60}")
+    private long maxAgeMinutes;
+
+    @Value("${webdriver.pool.max-rss-mb:1024}")
+    private long maxRssMb;
+
+    @Value("${webdriver.pool.health-check-interval-seconds:30}")
+    private int healthCheckIntervalSeconds;
+
+    private final LinkedBlockingDeque<PooledDriver> availableDrivers = new LinkedBlockingDeque<>();
+    private final ConcurrentHashMap<Long, WebDriverLease> activeLeases = new ConcurrentHashMap<>();
     private final AtomicInteger totalDrivers = new AtomicInteger(0);
+    private final AtomicLong driverSequence = new AtomicLong(0);
+    private final AtomicLong leaseSequence = new AtomicLong(0);
+    private final AtomicLong reapedLeases = new AtomicLong(0);
+
+    /**
+     * One permit per driver slot. The semaphore is fair, so blocked callers are
+     * handed a slot in arrival order as soon as a lease is closed or reaped.
+     */
+    private ResizableSemaphore driverPermits;
+
+    /**
+     * Current number of driver slots, between min-size and max-size. This is
+     * the single source of truth for concurrency: the capture executor follows
+     * it through the capacity listeners.
+     */
+    private volatile int capacity;
+    private volatile int minIdle;
+    private final List<IntConsumer> capacityListeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong totalAcquisitions = new AtomicLong(0);
+    private final AtomicLong totalWaitNanos = new AtomicLong(0);
+    private final AtomicLong maxWaitNanos = new AtomicLong(0);
+    private final AtomicLong warmAcquisitions = new AtomicLong(0);
+    private final AtomicLong coldAcquisitions = new AtomicLong(0);
+    private final AtomicLong affinityHits = new AtomicLong(0);
+    private final AtomicLong affinityMisses = new AtomicLong(0);
+    private final ConcurrentHashMap<RetirementReason, AtomicLong> retirements = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "WebDriverPool-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        minPoolSize = Math.max(1, Math.min(minPoolSize, maxPoolSize));
+        capacity = adaptiveSizing ? minPoolSize : maxPoolSize;
+        minIdle = Math.min(configuredMinIdle, capacity);
+        driverPermits = new ResizableSemaphore(capacity);
+        maintenance.scheduleWithFixedDelay(this::reapExpiredLeases,
+            reaperIntervalSeconds, reaperIntervalSeconds, TimeUnit.SECONDS);
+        maintenance.scheduleWithFixedDelay(this::checkHealth,
+            healthCheckIntervalSeconds, healthCheckIntervalSeconds, TimeUnit.SECONDS);
+    }
 
-    public WebDriver getDriver() {
-        WebDriver currentDriver = activeDrivers.get(Thread.currentThread());
-        if (currentDriver != null) {
-            return currentDriver;
+    /**
+     * Start min-idle browsers once the application is up, then keep them topped
+     * up in the background so acquisitions do not pay Chrome startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        log.info("Warming up WebDriver pool with {} idle drivers", minIdle);
+        maintenance.scheduleWithFixedDelay(this::replenish,
+            0, replenishIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Lease a driver for at most webdriver.pool.lease-timeout-seconds.
+     */
+    public WebDriverLease acquire() {
+        return acquire(null, Duration.ofSeconds(leaseTimeoutSeconds));
+    }
+
+    /**
+     * Lease a driver for at most the given budget. The lease must be closed by
+     * the holder; if it is still open after the budget the reaper discards its
+     * driver and frees the slot.
+     */
+    public WebDriverLease acquire(Duration leaseBudget) {
+        return acquire(null, leaseBudget);
+    }
+
+    /**
+     * Lease a driver that keeps its session for the given site. Idle drivers
+     * already holding that site's session are handed out first, and the
+     * session survives the lease being closed.
+     */
+    public WebDriverLease acquire(String affinity) {
+        return acquire(affinity, Duration.ofSeconds(leaseTimeoutSeconds));
+    }
+
+    public WebDriverLease acquire(String affinity, Duration leaseBudget) {
+        long waitStart = System.nanoTime();
+        acquirePermit();
+        recordWait(System.nanoTime() - waitStart);
+
+        try {
+            PooledDriver pooled = takeDriver(affinity);
+            boolean sessionReused;
+            try {
+                sessionReused = assignAffinity(pooled, affinity);
+            } catch (RuntimeException e) {
+                retireAsync(pooled, RetirementReason.CLEANUP_FAILED);
+                throw e;
+            }
+            requestReplenish();
+            Instant now = Instant.now();
+            WebDriverLease lease = new WebDriverLease(leaseSequence.incrementAndGet(), pooled, now, now.plus(leaseBudget),
+                sessionReused, this);
+            activeLeases.put(lease.getId(), lease);
+            return lease;
+        } catch (RuntimeException e) {
+            driverPermits.release();
+            throw e;
         }
+    }
+
+    /**
+     * Prefer an idle (warm) driver that passes the liveness probe. Only start
+     * Chrome on the request path when nothing is idle and the pool has a free
+     * slot; otherwise a slot is being filled in the background, so wait for it.
+     */
+    private PooledDriver takeDriver(String affinity) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (true) {
+            PooledDriver pooled = pollIdle(affinity);
+            if (pooled == null && reserveSlot()) {
+                pooled = createNewDriver();
+                if (pooled == null) {
+                    throw new RuntimeException("Failed to create new WebDriver");
+                }
+                log.debug("Created new WebDriver on request path, total: {}", totalDrivers.get());
+                coldAcquisitions.incrementAndGet();
+                return pooled;
+            }
 
-        WebDriver driver = availableDrivers.poll();
-        if (driver != null) {
-            log.debug("Reusing WebDriver from pool");
-            activeDrivers.put(Thread.currentThread(), driver);
-            return driver;
+            if (pooled == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new RuntimeException("Timeout waiting for available WebDriver");
+                }
+                // Wait in short slices: a retired driver frees its slot without
+                // anything being put back in the idle queue
+                try {
+                    pooled = availableDrivers.poll(Math.min(remaining, SLOT_RECHECK_NANOS), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for WebDriver", e);
+                }
+                if (pooled == null) {
+                    continue;
+                }
+            }
+
+            if (isUsable(pooled)) {
+                log.debug("Reusing WebDriver {} from pool", pooled.getId());
+                warmAcquisitions.incrementAndGet();
+                return pooled;
+            }
         }
+    }
 
-        if (totalDrivers.get() < maxPoolSize) {
-            driver = createNewDriver();
-            if (driver != null) {
-                log.debug("Created new WebDriver, total: {}", totalDrivers.get());
-                activeDrivers.put(Thread.currentThread(), driver);
-                return driver;
+    /**
+     * Take an idle driver, preferring one that already holds the requested
+     * site's session, then one with no session, then the least recently
+     * returned driver of another site.
+     */
+    private PooledDriver pollIdle(String affinity) {
+        if (affinity != null) {
+            for (PooledDriver pooled : availableDrivers) {
+                if (affinity.equals(pooled.getAffinity()) && availableDrivers.remove(pooled)) {
+                    return pooled;
+                }
+            }
+        }
+        for (PooledDriver pooled : availableDrivers) {
+            if (pooled.getAffinity() == null && availableDrivers.remove(pooled)) {
+                return pooled;
             }
         }
+        return availableDrivers.poll();
+    }
+
+    private boolean assignAffinity(PooledDriver pooled, String affinity) {
+        String current = pooled.getAffinity();
+        if (affinity != null && affinity.equals(current)) {
+            affinityHits.incrementAndGet();
+            return true;
+        }
+        if (affinity != null) {
+            affinityMisses.incrementAndGet();
+        }
+        if (current != null) {
+            log.debug("WebDriver {} drops session for {}", pooled.getId(), current);
+            clearSession(pooled);
+        }
+        pooled.setAffinity(affinity);
+        return false;
+    }
 
-        log.warn("WebDriver pool is full, waiting for available driver...");
-        long startTime = System.currentTimeMillis();
-        while (System.currentTimeMillis() - startTime < timeoutSeconds * 1000) {
-            driver = availableDrivers.poll();
-            if (driver != null) {
-                log.debug("Got WebDriver after waiting");
-                activeDrivers.put(Thread.currentThread(), driver);
-                return driver;
+    /**
+     * Remove every cookie in the browser, not just those of the current page,
+     * and the script that seeds the previous site's localStorage.
+     */
+    private void clearSession(PooledDriver pooled) {
+        WebDriver driver = pooled.getDriver();
+        if (driver instanceof HasCdp) {
+            HasCdp cdp = (HasCdp) driver;
+            String scriptId = pooled.getSessionScriptId();
+            if (scriptId != null) {
+                cdp.executeCdpCommand("Page.removeScriptToEvaluateOnNewDocument", Map.of("identifier", scriptId));
+                pooled.setSessionScriptId(null);
             }
+            cdp.executeCdpCommand("Network.clearBrowserCookies", Map.of());
+        } else {
+            driver.manage().deleteAllCookies();
+        }
+    }
+
+    /**
+     * Borrow-time check: retirement limits plus a single cheap round trip to the
+     * browser. Drivers that fail are retired in the background.
+     */
+    private boolean isUsable(PooledDriver pooled) {
+        RetirementReason reason = retirementReason(pooled, Instant.now());
+        if (reason == null) {
             try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new RuntimeException("Interrupted while waiting for WebDriver", e);
+                pooled.getDriver().getWindowHandle();
+            } catch (Exception e) {
+                log.warn("WebDriver {} failed liveness probe: {}", pooled.getId(), e.getMessage());
+                reason = RetirementReason.LIVENESS;
             }
         }
+        if (reason != null) {
+            retireAsync(pooled, reason);
+            return false;
+        }
+        return true;
+    }
 
-        throw new RuntimeException("Timeout waiting for available WebDriver");
+    private RetirementReason retirementReason(PooledDriver pooled, Instant now) {
+        if (pooled.getBrowser().isDraining()) {
+            return RetirementReason.MAX_RSS;
+        }
+        if (maxUses > 0 && pooled.getUseCount() >= maxUses) {
+            return RetirementReason.MAX_USES;
+        }
+        if (maxAgeMinutes > 0 && pooled.getAge(now).toMinutes() >= maxAgeMinutes) {
+            return RetirementReason.MAX_AGE;
+        }
+        return null;
     }
 
-    public void releaseDriver() {
-        WebDriver driver = activeDrivers.remove(Thread.currentThread());
-        if (driver != null) {
+    private boolean reserveSlot() {
+        int current;
+        do {
+            current = totalDrivers.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!totalDrivers.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void requestReplenish() {
+        if (availableDrivers.size() < minIdle) {
+            maintenance.execute(this::replenish);
+        }
+    }
+
+    private void replenish() {
+        try {
+            while (availableDrivers.size() < minIdle && reserveSlot()) {
+                PooledDriver pooled = createNewDriver();
+                if (pooled == null) {
+                    break;
+                }
+                returnToIdle(pooled);
+                log.debug("Replenished idle WebDriver, available: {}", availableDrivers.size());
+            }
+        } catch (Exception e) {
+            log.error("Error replenishing WebDriver pool", e);
+        }
+    }
+
+    private void acquirePermit() {
+        try {
+            // The timed form honours fairness; the untimed tryAcquire() would barge past waiters
+            if (driverPermits.tryAcquire(0, TimeUnit.SECONDS)) {
+                return;
+            }
+
+            log.warn("WebDriver pool is full, waiting for available driver ({} already waiting)...",
+                driverPermits.getQueueLength());
+            if (!driverPermits.tryAcquire(timeoutSeconds, TimeUnit.SECONDS)) {
+                throw new RuntimeException("Timeout waiting for available WebDriver");
+            }
+            log.debug("Got WebDriver permit after waiting");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for WebDriver", e);
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        totalAcquisitions.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    void release(WebDriverLease lease) {
+        if (activeLeases.remove(lease.getId()) != null) {
+            PooledDriver pooled = lease.pooledDriver();
             try {
-                driver.manage().deleteAllCookies();
-                driver.manage().window().maximize();
+                pooled.recordUse();
+                RetirementReason reason = retirementReason(pooled, Instant.now());
+                if (reason != null) {
+                    retireAsync(pooled, reason);
+                    return;
+                }
+
+                if (pooled.getAffinity() == null) {
+                    clearSession(pooled);
+                }
+                pooled.getDriver().manage().window().maximize();
                 
-                if (availableDrivers.size() < maxPoolSize) {
-                    availableDrivers.offer(driver);
+                if (totalDrivers.get() <= capacity) {
+                    returnToIdle(pooled);
                     log.debug("Returned WebDriver to pool, available: {}", availableDrivers.size());
                 } else {
-                    closeDriver(driver);
-                    totalDrivers.decrementAndGet();
-                    log.debug("Closed WebDriver, pool was full");
+                    log.debug("Pool is above capacity, retiring WebDriver {}", pooled.getId());
+                    retireAsync(pooled, RetirementReason.SHRINK);
                 }
             } catch (Exception e) {
                 log.error("Error preparing WebDriver for reuse", e);
-                closeDriver(driver);
-                totalDrivers.decrementAndGet();
+                retireAsync(pooled, RetirementReason.CLEANUP_FAILED);
+            } finally {
+                driverPermits.release();
             }
         }
     }
 
-    private WebDriver createNewDriver() {
+    private void returnToIdle(PooledDriver pooled) {
+        pooled.markIdle(Instant.now());
+        availableDrivers.offer(pooled);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getMinPoolSize() {
+        return minPoolSize;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public boolean isAdaptiveSizing() {
+        return adaptiveSizing;
+    }
+
+    /**
+     * Register a callback run with the new capacity whenever the pool resizes,
+     * and once immediately with the current capacity.
+     */
+    public void addCapacityListener(IntConsumer listener) {
+        capacityListeners.add(listener);
+        listener.accept(capacity);
+    }
+
+    /**
+     * Change the number of driver slots, clamped to [min-size, max-size].
+     * Growing frees permits for waiters at once; shrinking takes permits back
+     * and retires surplus idle drivers in the background. Leased drivers above
+     * the new capacity are retired when their lease closes.
+     */
+    public synchronized int resize(int newCapacity) {
+        int target = Math.max(minPoolSize, Math.min(maxPoolSize, newCapacity));
+        int delta = target - capacity;
+        if (delta == 0) {
+            return capacity;
+        }
+
+        capacity = target;
+        minIdle = Math.min(configuredMinIdle, target);
+        if (delta > 0) {
+            driverPermits.release(delta);
+        } else {
+            driverPermits.reducePermits(-delta);
+            maintenance.execute(this::trimToCapacity);
+        }
+        log.info("WebDriver pool capacity changed by {} to {}", delta, target);
+        capacityListeners.forEach(listener -> listener.accept(target));
+        return target;
+    }
+
+    /**
+     * Retires from the head of the idle deque, where the longest-idle drivers sit.
+     */
+    private void trimToCapacity() {
+        PooledDriver pooled;
+        while (totalDrivers.get() > capacity && (pooled = availableDrivers.pollFirst()) != null) {
+            retire(pooled, RetirementReason.SHRINK);
+        }
+    }
+
+    /**
+     * How long the longest-idle driver has been sitting in the pool.
+     */
+    public Duration getLongestIdle() {
+        Instant now = Instant.now();
+        Duration longest = Duration.ZERO;
+        for (PooledDriver pooled : availableDrivers) {
+            Duration idle = pooled.getIdleTime(now);
+            if (idle.compareTo(longest) > 0) {
+                longest = idle;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Cumulative (acquisitions, wait nanos) so a caller can compute the average
+     * wait over its own sampling window.
+     */
+    public long[] getWaitTotals() {
+        return new long[] { totalAcquisitions.get(), totalWaitNanos.get() };
+    }
+
+    public int getWaitingRequests() {
+        return driverPermits.getQueueLength();
+    }
+
+    /**
+     * Average RSS per pooled driver across running browsers, or -1 when no
+     * browser has been measured yet.
+     */
+    public long getAverageDriverRssBytes() {
+        long totalRss = 0;
+        for (BrowserInstance browser : runningBrowsers()) {
+            if (browser.getRssBytes() > 0) {
+                totalRss += browser.getRssBytes();
+            }
+        }
+        int drivers = totalDrivers.get();
+        return totalRss > 0 && drivers > 0 ? totalRss / drivers : -1;
+    }
+
+    private void reapExpiredLeases() {
+        Instant now = Instant.now();
+        for (WebDriverLease lease : activeLeases.values()) {
+            if (lease.isExpired(now) && lease.revoke()) {
+                activeLeases.remove(lease.getId());
+                log.warn("Reclaiming WebDriver lease {} held since {}, past its deadline {}",
+                    lease.getId(), lease.getAcquiredAt(), lease.getDeadline());
+                reapedLeases.incrementAndGet();
+                driverPermits.release();
+                retire(lease.pooledDriver(), RetirementReason.LEASE_EXPIRED);
+            }
+        }
+    }
+
+    /**
+     * Periodic sweep: measure each running browser, mark the ones over the
+     * memory ceiling as draining, then retire idle drivers that are past a
+     * limit. Leased drivers of a draining browser retire when released.
+     */
+    private void checkHealth() {
         try {
-            ChromeOptions options = new ChromeOptions();
-            
-            List<String> args = new ArrayList<>(List.of(
-                "--no-sandbox",
-                "--disable-dev-shm-usage",
-                "--disable-gpu",
-                "--disable-extensions",
-                "--disable-plugins",
-                "--headless",
-                "--remote-debugging-port=0"
-            ));
-            
-            options.addArguments(args);
-            
-            WebDriver driver = new ChromeDriver(options);
-            driver.manage().window().maximize();
-            
-            totalDrivers.incrementAndGet();
-            log.debug("Created new WebDriver instance");
-            
-            return driver;
+            for (BrowserInstance browser : runningBrowsers()) {
+                if (exceedsRss(browser)) {
+                    browser.drain();
+                }
+            }
+            Instant now = Instant.now();
+            for (PooledDriver pooled : availableDrivers) {
+                RetirementReason reason = retirementReason(pooled, now);
+                if (reason != null && availableDrivers.remove(pooled)) {
+                    retire(pooled, reason);
+                }
+            }
+            replenish();
         } catch (Exception e) {
-            log.error("Failed to create new WebDriver", e);
-            return null;
+            log.error("Error checking WebDriver pool health", e);
         }
     }
 
-    private void closeDriver(WebDriver driver) {
+    private Set<BrowserInstance> runningBrowsers() {
+        Set<BrowserInstance> browsers = new LinkedHashSet<>();
+        availableDrivers.forEach(pooled -> browsers.add(pooled.getBrowser()));
+        activeLeases.values().forEach(lease -> browsers.add(lease.pooledDriver().getBrowser()));
+        return browsers;
+    }
+
+    private boolean exceedsRss(BrowserInstance browser) {
+        if (!processMonitor.isSupported()) {
+            return false;
+        }
+        if (browser.getProcessTreeRoot() <= 0) {
+            browser.setProcessTreeRoot(processMonitor.findProcessTreeRoot(browser.getUserDataDir()));
+        }
+        long rssBytes = processMonitor.getTreeRssBytes(browser.getProcessTreeRoot());
+        browser.setRssBytes(rssBytes);
+        if (maxRssMb > 0 && rssBytes > maxRssMb * 1024 * 1024) {
+            log.info("Browser {} uses {} MB RSS, above the {} MB ceiling",
+                browser.getUserDataDir(), rssBytes / (1024 * 1024), maxRssMb);
+            return true;
+        }
+        return false;
+    }
+
+    private void retireAsync(PooledDriver pooled, RetirementReason reason) {
+        maintenance.execute(() -> retire(pooled, reason));
+    }
+
+    /**
+     * Quit a driver and free its slot. The slot is only given back once Chrome
+     * has exited, so the replacement never overlaps with the process it replaces.
+     */
+    private void retire(PooledDriver pooled, RetirementReason reason) {
+        log.info("Retiring WebDriver {} ({}), used {} times, age {}",
+            pooled.getId(), reason, pooled.getUseCount(), pooled.getAge(Instant.now()));
+        driverFactory.destroy(pooled);
+        totalDrivers.decrementAndGet();
+        retirements.computeIfAbsent(reason, key -> new AtomicLong()).incrementAndGet();
+        replenish();
+    }
+
+    /**
+     * Start a browser for a slot already reserved in totalDrivers.
+     * The reservation is given back if the browser fails to start.
+     */
+    private PooledDriver createNewDriver() {
         try {
-            if (driver != null) {
-                driver.quit();
-                log.debug("Closed WebDriver instance");
-            }
+            PooledDriver pooled = driverFactory.create(driverSequence.incrementAndGet());
+            log.debug("Created new WebDriver instance {}", pooled.getId());
+            return pooled;
         } catch (Exception e) {
-            log.error("Error closing WebDriver", e);
+            log.error("Failed to create new WebDriver", e);
+            totalDrivers.decrementAndGet();
+            return null;
         }
     }
 
     public PoolStats getPoolStats() {
-        return new PoolStats(
-            totalDrivers.get(),
-            activeDrivers.size(),
-            availableDrivers.size(),
-            maxPoolSize
-        );
+        long acquisitions = totalAcquisitions.get();
+        PoolStats stats = new PoolStats();
+        stats.setTotalDrivers(totalDrivers.get());
+        stats.setActiveDrivers(activeLeases.size());
+        stats.setAvailableDrivers(availableDrivers.size());
+        stats.setMaxPoolSize(maxPoolSize);
+        stats.setMinPoolSize(minPoolSize);
+        stats.setCapacity(capacity);
+        stats.setMinIdle(minIdle);
+        stats.setWaitingRequests(driverPermits.getQueueLength());
+        stats.setTotalAcquisitions(acquisitions);
+        stats.setAverageWaitMillis(acquisitions > 0 ? TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / acquisitions) : 0);
+        stats.setMaxWaitMillis(TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        stats.setWarmAcquisitions(warmAcquisitions.get());
+        stats.setColdAcquisitions(coldAcquisitions.get());
+        stats.setAffinityHits(affinityHits.get());
+        stats.setAffinityMisses(affinityMisses.get());
+        stats.setReapedLeases(reapedLeases.get());
+
+        Map<String, Long> retired = new TreeMap<>();
+        retirements.forEach((reason, count) -> retired.put(reason.name(), count.get()));
+        stats.setRetiredDrivers(retired);
+
+        Set<BrowserInstance> browsers = runningBrowsers();
+        long largestRss = -1;
+        long totalRss = 0;
+        for (BrowserInstance browser : browsers) {
+            largestRss = Math.max(largestRss, browser.getRssBytes());
+            totalRss += Math.max(browser.getRssBytes(), 0);
+        }
+        stats.setMode(driverFactory.getMode().name());
+        stats.setBrowserProcesses(browsers.size());
+        stats.setLargestBrowserRssMb(largestRss >= 0 ? largestRss / (1024 * 1024) : -1);
+        stats.setTotalRssMb(totalRss / (1024 * 1024));
+        return stats;
     }
 
     @PreDestroy
     public void shutdown() {
         log.info("Shutting down WebDriver pool...");
+        maintenance.shutdownNow();
         
-        activeDrivers.values().forEach(this::closeDriver);
-        activeDrivers.clear();
+        activeLeases.values().forEach(lease -> driverFactory.destroy(lease.pooledDriver()));
+        activeLeases.clear();
         
-        WebDriver driver;
-        while ((driver = availableDrivers.poll()) != null) {
-            closeDriver(driver);
+        PooledDriver pooled;
+        while ((pooled = availableDrivers.poll()) != null) {
+            driverFactory.destroy(pooled);
         }
         
+        driverFactory.shutdown();
         totalDrivers.set(0);
         log.info("WebDriver pool shutdown complete");
     }
 
     public static class PoolStats {
-        private final int totalDrivers;
-        private final int activeDrivers;
-        private final int availableDrivers;
-        private final int maxPoolSize;
-
-        public PoolStats(int totalDrivers, int activeDrivers, int availableDrivers, int maxPoolSize) {
-            this.totalDrivers = totalDrivers;
-            this.activeDrivers = activeDrivers;
-            this.availableDrivers = availableDrivers;
-            this.maxPoolSize = maxPoolSize;
-        }
+        private int totalDrivers;
+        private int activeDrivers;
+        private int availableDrivers;
+        private int maxPoolSize;
+        private int minPoolSize;
+        private int capacity;
+        private int minIdle;
+        private int waitingRequests;
+        private long totalAcquisitions;
+        private long averageWaitMillis;
+        private long maxWaitMillis;
+        private long warmAcquisitions;
+        private long coldAcquisitions;
+        private long affinityHits;
+        private long affinityMisses;
+        private long reapedLeases;
+        private Map<String, Long> retiredDrivers;
+        private String mode;
+        private int browserProcesses;
+        private long largestBrowserRssMb;
+        private long totalRssMb;
+        private final long timestamp = System.currentTimeMillis();
 
         public int getTotalDrivers() { return totalDrivers; }
+        public void setTotalDrivers(int totalDrivers) { this.totalDrivers = totalDrivers; }
+
         public int getActiveDrivers() { return activeDrivers; }
+        public void setActiveDrivers(int activeDrivers) { this.activeDrivers = activeDrivers; }
+
         public int getAvailableDrivers() { return availableDrivers; }
+        public void setAvailableDrivers(int availableDrivers) { this.availableDrivers = availableDrivers; }
+
         public int getMaxPoolSize() { return maxPoolSize; }
+        public void setMaxPoolSize(int maxPoolSize) { this.maxPoolSize = maxPoolSize; }
+
+        public int getMinPoolSize() { return minPoolSize; }
+        public void setMinPoolSize(int minPoolSize) { this.minPoolSize = minPoolSize; }
+
+        public int getCapacity() { return capacity; }
+        public void setCapacity(int capacity) { this.capacity = capacity; }
+
+        public int getMinIdle() { return minIdle; }
+        public void setMinIdle(int minIdle) { this.minIdle = minIdle; }
+
+        public int getWaitingRequests() { return waitingRequests; }
+        public void setWaitingRequests(int waitingRequests) { this.waitingRequests = waitingRequests; }
+
+        public long getTotalAcquisitions() { return totalAcquisitions; }
+        public void setTotalAcquisitions(long totalAcquisitions) { this.totalAcquisitions = totalAcquisitions; }
+
+        public long getAverageWaitMillis() { return averageWaitMillis; }
+        public void setAverageWaitMillis(long averageWaitMillis) { this.averageWaitMillis = averageWaitMillis; }
+
+        public long getMaxWaitMillis() { return maxWaitMillis; }
+        public void setMaxWaitMillis(long maxWaitMillis) { this.maxWaitMillis = maxWaitMillis; }
+
+        public long getWarmAcquisitions() { return warmAcquisitions; }
+        public void setWarmAcquisitions(long warmAcquisitions) { this.warmAcquisitions = warmAcquisitions; }
+
+        public long getColdAcquisitions() { return coldAcquisitions; }
+        public void setColdAcquisitions(long coldAcquisitions) { this.coldAcquisitions = coldAcquisitions; }
+
+        public long getAffinityHits() { return affinityHits; }
+        public void setAffinityHits(long affinityHits) { this.affinityHits = affinityHits; }
+
+        public long getAffinityMisses() { return affinityMisses; }
+        public void setAffinityMisses(long affinityMisses) { this.affinityMisses = affinityMisses; }
+
+        public long getReapedLeases() { return reapedLeases; }
+        public void setReapedLeases(long reapedLeases) { this.reapedLeases = reapedLeases; }
+
+        public Map<String, Long> getRetiredDrivers() { return retiredDrivers; }
+        public void setRetiredDrivers(Map<String, Long> retiredDrivers) { this.retiredDrivers = retiredDrivers; }
+
+        public String getMode() { return mode; }
+        public void setMode(String mode) { this.mode = mode; }
+
+        public int getBrowserProcesses() { return browserProcesses; }
+        public void setBrowserProcesses(int browserProcesses) { this.browserProcesses = browserProcesses; }
+
+        public long getLargestBrowserRssMb() { return largestBrowserRssMb; }
+        public void setLargestBrowserRssMb(long largestBrowserRssMb) { this.largestBrowserRssMb = largestBrowserRssMb; }
+
+        public long getTotalRssMb() { return totalRssMb; }
+        public void setTotalRssMb(long totalRssMb) { this.totalRssMb = totalRssMb; }
+
+        public long getTimestamp() { return timestamp; }
+
         public int getUtilizationPercentage() { 
-            return maxPoolSize > 0 ? (totalDrivers * 100) / maxPoolSize : 0; 
+            return capacity > 0 ? (totalDrivers * 100) / capacity : 0; 
+        }
+    }
+
+    /**
+     * Fair semaphore whose permit count can be lowered while permits are out.
+     */
+    private static class ResizableSemaphore extends Semaphore {
+
+        private static final long serialVersionUID = 1L;
+
+        ResizableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        public void reducePermits(int reduction) {
+            super.reducePermits(reduction);
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,62 @@
+package com.dlocal.slackshot.controller;
+
+import com.dlocal.slackshot.model.Site;
+import com.dlocal.slackshot.repository.SiteRepository;
+import com.dlocal.slackshot.service.CaptureExecutor;
+import com.dlocal.slackshot.service.CaptureJobService;
+import com.dlocal.slackshot.service.ScreenshotService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class CaptureJobControllerTest {
+
+    private final ScreenshotService screenshotService = mock(ScreenshotService.class);
+    private final CaptureExecutor captureExecutor = mock(CaptureExecutor.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        Site site = new Site();
+        site.setName("dashboard");
+        SiteRepository siteRepository = mock(SiteRepository.class);
+        when(siteRepository.existsByName("dashboard")).thenReturn(true);
+        when(siteRepository.findByName("dashboard")).thenReturn(Optional.of(site));
+
+        CaptureJobService captureJobService = new CaptureJobService();
+        ReflectionTestUtils.setField(captureJobService, "screenshotService", screenshotService);
+        ReflectionTestUtils.setField(captureJobService, "siteRepository", siteRepository);
+        ReflectionTestUtils.setField(captureJobService, "captureExecutor", captureExecutor);
+        ReflectionTestUtils.setField(captureJobService, "queueCapacity", 0);
+
+        CaptureJobController controller = new CaptureJobController();
+        ReflectionTestUtils.setField(controller, "captureJobService", captureJobService);
+        ReflectionTestUtils.setField(controller, "siteRepository", siteRepository);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void fullJobQueueAnswersTooManyRequestsWithRetryAfter() throws Exception {
+        when(captureExecutor.estimateRetryAfterSeconds()).thenReturn(42L);
+
+        mockMvc.perform(post("/api/jobs").param("site", "dashboard"))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().string(HttpHeaders.RETRY_AFTER, "42"));
+
+        verify(screenshotService, never()).captureAsync(any(), any(), any(), any());
+    }
+}
@@ -0,0 +1,128 @@
+package com.dlocal.slackshot.repository;
+
+import com.dlocal.slackshot.model.Screenshot;
+import com.dlocal.slackshot.model.ScreenshotTask;
+import com.dlocal.slackshot.model.Site;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Listing, history and scheduling queries must only read screenshot metadata;
+ * the legacy image column is selected only through ScreenshotImage.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+    + "com.dlocal.slackshot.repository.ScreenshotRepositoryTest$RecordingStatementInspector")
+class ScreenshotRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ScreenshotRepository screenshotRepository;
+
+    @Autowired
+    private ScreenshotImageRepository screenshotImageRepository;
+
+    @Autowired
+    private ScreenshotTaskRepository screenshotTaskRepository;
+
+    private Site site;
+    private Screenshot latest;
+
+    @BeforeEach
+    void setUp() {
+        site = new Site();
+        site.setName("dashboard");
+        site.setUrl("http://dashboard.test/");
+        entityManager.persist(site);
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 3; i++) {
+            Screenshot screenshot = new Screenshot();
+            screenshot.setName(site.getName());
+            screenshot.setUrl(site.getUrl());
+            screenshot.setCreatedAt(now.minusMinutes(3 - i));
+            screenshot.setSite(site);
+            latest = entityManager.persist(screenshot);
+            // A row not yet moved to the image store still carries its bytes
+            entityManager.getEntityManager()
+                .createNativeQuery("UPDATE screenshots SET image_data = ?1 WHERE id = ?2")
+                .setParameter(1, new byte[1024])
+                .setParameter(2, screenshot.getId())
+                .executeUpdate();
+        }
+
+        entityManager.persist(new ScreenshotTask(site, now, Duration.ofMinutes(5), true, now));
+        entityManager.flush();
+        entityManager.clear();
+        RecordingStatementInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    void historyQueryDoesNotSelectImageData() {
+        assertThat(screenshotRepository.findBySiteOrderByCreatedAtDesc(site)).hasSize(3);
+        assertNoImageDataSelected();
+    }
+
+    @Test
+    void latestQueryDoesNotSelectImageData() {
+        assertThat(screenshotRepository.findFirstBySiteOrderByCreatedAtDescIdDesc(site))
+            .get().extracting(Screenshot::getId).isEqualTo(latest.getId());
+        assertThat(screenshotRepository.findById(latest.getId())).isPresent();
+        assertThat(screenshotRepository.findBySiteAndId(site, latest.getId())).isPresent();
+        assertNoImageDataSelected();
+    }
+
+    @Test
+    void countQueriesDoNotSelectImageData() {
+        assertThat(screenshotRepository.count()).isEqualTo(3);
+        assertThat(screenshotTaskRepository.countByActiveTrue()).isEqualTo(1);
+        assertThat(screenshotTaskRepository.countByActiveFalse()).isZero();
+        assertNoImageDataSelected();
+    }
+
+    @Test
+    void schedulingQueriesDoNotSelectImageData() {
+        assertThat(screenshotTaskRepository.findByActiveTrue()).hasSize(1);
+        assertThat(screenshotTaskRepository.findBySiteAndActiveTrue(site)).hasSize(1);
+        assertNoImageDataSelected();
+    }
+
+    @Test
+    void legacyImageIsSelectedOnlyThroughScreenshotImage() {
+        assertThat(screenshotImageRepository.findById(latest.getId()))
+            .get().extracting(image -> image.getImageData().length).isEqualTo(1024);
+        assertThat(RecordingStatementInspector.STATEMENTS)
+            .anySatisfy(sql -> assertThat(sql.toLowerCase()).contains("image_data"));
+    }
+
+    private void assertNoImageDataSelected() {
+        assertThat(RecordingStatementInspector.STATEMENTS).isNotEmpty();
+        assertThat(RecordingStatementInspector.STATEMENTS)
+            .allSatisfy(sql -> assertThat(sql.toLowerCase()).doesNotContain("image_data"));
+    }
+
+    public static class RecordingStatementInspector implements StatementInspector {
+
+        private static final long serialVersionUID = 1L;
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
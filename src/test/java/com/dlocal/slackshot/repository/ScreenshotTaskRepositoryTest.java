@@ -0,0 +1,83 @@
+package com.dlocal.slackshot.repository;
+
+import com.dlocal.slackshot.model.ScreenshotTask;
+import com.dlocal.slackshot.model.Site;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class ScreenshotTaskRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ScreenshotTaskRepository screenshotTaskRepository;
+
+    private final LocalDateTime slot = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    private ScreenshotTask task;
+
+    @BeforeEach
+    void setUp() {
+        Site site = new Site();
+        site.setName("dashboard");
+        site.setUrl("http://dashboard.test/");
+        entityManager.persist(site);
+        task = entityManager.persist(new ScreenshotTask(site, slot, Duration.ofMinutes(5), true, slot));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void advancesTaskStillAtTheSlotItRanFor() {
+        assertThat(screenshotTaskRepository.advanceScheduledTime(task.getId(), slot, slot.plusMinutes(5))).isEqualTo(1);
+        assertThat(reload().getScheduledTime()).isEqualTo(slot.plusMinutes(5));
+    }
+
+    @Test
+    void leavesDeactivatedTaskAlone() {
+        ScreenshotTask edited = reload();
+        edited.setActive(false);
+        screenshotTaskRepository.saveAndFlush(edited);
+
+        assertThat(screenshotTaskRepository.advanceScheduledTime(task.getId(), slot, slot.plusMinutes(5))).isZero();
+        assertThat(reload().isActive()).isFalse();
+        assertThat(reload().getScheduledTime()).isEqualTo(slot);
+    }
+
+    @Test
+    void leavesRescheduledTaskAlone() {
+        ScreenshotTask edited = reload();
+        edited.setScheduledTime(slot.plusHours(1));
+        screenshotTaskRepository.saveAndFlush(edited);
+
+        assertThat(screenshotTaskRepository.advanceScheduledTime(task.getId(), slot, slot.plusMinutes(5))).isZero();
+        assertThat(reload().getScheduledTime()).isEqualTo(slot.plusHours(1));
+    }
+
+    @Test
+    void intervalUpdateKeepsTimeAdvancedByARunMeanwhile() {
+        // A run finishes between the handler's read and its write
+        assertThat(screenshotTaskRepository.advanceScheduledTime(task.getId(), slot, slot.plusMinutes(5))).isEqualTo(1);
+
+        assertThat(screenshotTaskRepository.updateTaskInterval(task.getId(), Duration.ofMinutes(15))).isEqualTo(1);
+        ScreenshotTask updated = reload();
+        assertThat(updated.getTaskInterval()).isEqualTo(Duration.ofMinutes(15));
+        assertThat(updated.getScheduledTime()).isEqualTo(slot.plusMinutes(5));
+        assertThat(screenshotTaskRepository.updateTaskInterval(-1L, Duration.ofMinutes(15))).isZero();
+    }
+
+    private ScreenshotTask reload() {
+        entityManager.clear();
+        return screenshotTaskRepository.findById(task.getId()).orElseThrow();
+    }
+}
@@ -0,0 +1,116 @@
+package com.dlocal.slackshot.service;
+
+import com.dlocal.slackshot.model.Screenshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the coordinator over a real executor whose single driver slot is held,
+ * so captures stay queued while other callers join them.
+ */
+class CaptureCoordinatorTest {
+
+    private ExecutorService threads;
+    private CaptureExecutor captureExecutor;
+    private CaptureCoordinator captureCoordinator;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> order = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        threads = Executors.newCachedThreadPool();
+        WebDriverManager webDriverManager = mock(WebDriverManager.class);
+        when(webDriverManager.getCapacity()).thenReturn(1);
+
+        captureExecutor = new CaptureExecutor();
+        ReflectionTestUtils.setField(captureExecutor, "webDriverManager", webDriverManager);
+        ReflectionTestUtils.setField(captureExecutor, "webDriverTaskExecutor", threads);
+        ReflectionTestUtils.setField(captureExecutor, "scheduledHeadStartSeconds", 30L);
+        ReflectionTestUtils.setField(captureExecutor, "backfillHeadStartSeconds", 120L);
+        ReflectionTestUtils.setField(captureExecutor, "interactiveQueueCapacity", 10);
+        ReflectionTestUtils.setField(captureExecutor, "scheduledQueueCapacity", 10);
+        ReflectionTestUtils.setField(captureExecutor, "backfillQueueCapacity", 10);
+        ReflectionTestUtils.setField(captureExecutor, "maxRetryAfterSeconds", 300L);
+        captureExecutor.init();
+
+        captureCoordinator = new CaptureCoordinator();
+        ReflectionTestUtils.setField(captureCoordinator, "captureExecutor", captureExecutor);
+        ReflectionTestUtils.setField(captureCoordinator, "sharedWaitSeconds", 10L);
+
+        CountDownLatch started = new CountDownLatch(1);
+        captureExecutor.submit(CaptureExecutor.Priority.INTERACTIVE, "holder", () -> {
+            started.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        threads.shutdownNow();
+    }
+
+    @Test
+    void interactiveCallerJoiningQueuedBackfillPromotesIt() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<Screenshot> other = capture("other", CaptureExecutor.Priority.SCHEDULED, runs);
+        CompletableFuture<Screenshot> backfill = capture("dashboard", CaptureExecutor.Priority.BACKFILL, runs);
+        CompletableFuture<Screenshot> joined = capture("dashboard", CaptureExecutor.Priority.INTERACTIVE, runs);
+
+        CaptureExecutor.SchedulerStats queued = captureExecutor.getStats();
+        assertThat(queued.getClasses().get("INTERACTIVE").getQueued()).isEqualTo(1);
+        assertThat(queued.getClasses().get("BACKFILL").getQueued()).isZero();
+        assertThat(queued.getClasses().get("BACKFILL").getPromoted()).isEqualTo(1);
+
+        release.countDown();
+        Screenshot screenshot = joined.get(5, TimeUnit.SECONDS);
+        assertThat(backfill.get(5, TimeUnit.SECONDS)).isSameAs(screenshot);
+        other.get(5, TimeUnit.SECONDS);
+
+        // The joined capture ran once, ahead of the scheduled one queued before it
+        assertThat(order).containsExactly("dashboard", "other");
+        assertThat(runs).hasValue(2);
+        CaptureCoordinator.CaptureStats stats = captureCoordinator.getStats();
+        assertThat(stats.getDuplicatesSaved()).isEqualTo(1);
+        assertThat(stats.getPromotions()).isEqualTo(1);
+    }
+
+    @Test
+    void lowerClassCallerJoiningDoesNotDemote() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<Screenshot> interactive = capture("dashboard", CaptureExecutor.Priority.INTERACTIVE, runs);
+        CompletableFuture<Screenshot> joined = capture("dashboard", CaptureExecutor.Priority.BACKFILL, runs);
+
+        assertThat(captureExecutor.getStats().getClasses().get("INTERACTIVE").getQueued()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(joined.get(5, TimeUnit.SECONDS)).isSameAs(interactive.get(5, TimeUnit.SECONDS));
+        assertThat(runs).hasValue(1);
+        assertThat(captureCoordinator.getStats().getPromotions()).isZero();
+    }
+
+    private CompletableFuture<Screenshot> capture(String site, CaptureExecutor.Priority priority, AtomicInteger runs) {
+        return captureCoordinator.capture(site, priority,
+            () -> captureExecutor.submit(priority, site, () -> {
+                runs.incrementAndGet();
+                order.add(site);
+                return new Screenshot();
+            }));
+    }
+}
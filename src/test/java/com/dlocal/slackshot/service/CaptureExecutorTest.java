@@ -0,0 +1,160 @@
+package com.dlocal.slackshot.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the executor with a single driver slot held by a blocking capture, so
+ * everything submitted meanwhile queues up and starts in the order it picks.
+ */
+class CaptureExecutorTest {
+
+    private ExecutorService threads;
+    private CaptureExecutor captureExecutor;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> order = new CopyOnWriteArrayList<>();
+    private final List<CompletableFuture<?>> futures = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        threads = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        threads.shutdownNow();
+    }
+
+    @Test
+    void higherClassesStartFirstAndEachClassInArrivalOrder() throws Exception {
+        start(30, 120);
+        holdSlot();
+
+        submit(CaptureExecutor.Priority.BACKFILL, "backfill-1");
+        submit(CaptureExecutor.Priority.SCHEDULED, "scheduled-1");
+        submit(CaptureExecutor.Priority.INTERACTIVE, "interactive-1");
+        submit(CaptureExecutor.Priority.SCHEDULED, "scheduled-2");
+        submit(CaptureExecutor.Priority.INTERACTIVE, "interactive-2");
+
+        drain();
+        assertThat(order).containsExactly("interactive-1", "interactive-2", "scheduled-1", "scheduled-2", "backfill-1");
+        assertThat(captureExecutor.getStats().getClasses().get("SCHEDULED").getAged()).isZero();
+    }
+
+    @Test
+    void captureWaitingLongerThanItsHeadStartOvertakesInteractive() throws Exception {
+        // No head start for scheduled captures: whichever has waited longest goes first
+        start(0, 120);
+        holdSlot();
+
+        submit(CaptureExecutor.Priority.SCHEDULED, "scheduled-1");
+        Thread.sleep(20);
+        submit(CaptureExecutor.Priority.INTERACTIVE, "interactive-1");
+        Thread.sleep(20);
+        submit(CaptureExecutor.Priority.SCHEDULED, "scheduled-2");
+        submit(CaptureExecutor.Priority.BACKFILL, "backfill-1");
+
+        drain();
+        assertThat(order).containsExactly("scheduled-1", "interactive-1", "scheduled-2", "backfill-1");
+        CaptureExecutor.SchedulerStats stats = captureExecutor.getStats();
+        // Only scheduled-1 started while an interactive capture was waiting
+        assertThat(stats.getClasses().get("SCHEDULED").getAged()).isEqualTo(1);
+        assertThat(stats.getClasses().get("SCHEDULED").getStarted()).isEqualTo(2);
+        assertThat(stats.getClasses().get("INTERACTIVE").getMaxQueueMillis()).isGreaterThan(0);
+    }
+
+    @Test
+    void fullClassQueueRejectsWithRetryAfterEstimate() throws Exception {
+        start(30, 120, 2, 300);
+        holdSlot();
+
+        submit(CaptureExecutor.Priority.INTERACTIVE, "interactive-1");
+        submit(CaptureExecutor.Priority.INTERACTIVE, "interactive-2");
+        // One running and two queued at the 10s default duration over one slot
+        assertThat(captureExecutor.estimateRetryAfterSeconds()).isEqualTo(30);
+
+        assertThatThrownBy(() -> submit(CaptureExecutor.Priority.INTERACTIVE, "interactive-3"))
+            .isInstanceOfSatisfying(CaptureRejectedException.class,
+                e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(30));
+
+        // Other classes have queues of their own
+        submit(CaptureExecutor.Priority.SCHEDULED, "scheduled-1");
+
+        drain();
+        assertThat(order).containsExactly("interactive-1", "interactive-2", "scheduled-1");
+        CaptureExecutor.ClassStats interactive = captureExecutor.getStats().getClasses().get("INTERACTIVE");
+        assertThat(interactive.getQueueCapacity()).isEqualTo(2);
+        assertThat(interactive.getRejected()).isEqualTo(1);
+        assertThat(interactive.getEnqueued()).isEqualTo(3);
+    }
+
+    @Test
+    void retryAfterIsCappedAtMaximum() throws Exception {
+        start(30, 120, 10, 20);
+        holdSlot();
+
+        for (int i = 0; i < 10; i++) {
+            submit(CaptureExecutor.Priority.INTERACTIVE, "interactive-" + i);
+        }
+        assertThatThrownBy(() -> submit(CaptureExecutor.Priority.INTERACTIVE, "interactive-10"))
+            .isInstanceOfSatisfying(CaptureRejectedException.class,
+                e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(20));
+        drain();
+    }
+
+    private void start(long scheduledHeadStartSeconds, long backfillHeadStartSeconds) {
+        start(scheduledHeadStartSeconds, backfillHeadStartSeconds, 10, 300);
+    }
+
+    private void start(long scheduledHeadStartSeconds, long backfillHeadStartSeconds, int queueCapacity,
+                       long maxRetryAfterSeconds) {
+        WebDriverManager webDriverManager = mock(WebDriverManager.class);
+        when(webDriverManager.getCapacity()).thenReturn(1);
+
+        captureExecutor = new CaptureExecutor();
+        ReflectionTestUtils.setField(captureExecutor, "webDriverManager", webDriverManager);
+        ReflectionTestUtils.setField(captureExecutor, "webDriverTaskExecutor", threads);
+        ReflectionTestUtils.setField(captureExecutor, "scheduledHeadStartSeconds", scheduledHeadStartSeconds);
+        ReflectionTestUtils.setField(captureExecutor, "backfillHeadStartSeconds", backfillHeadStartSeconds);
+        ReflectionTestUtils.setField(captureExecutor, "interactiveQueueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(captureExecutor, "scheduledQueueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(captureExecutor, "backfillQueueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(captureExecutor, "maxRetryAfterSeconds", maxRetryAfterSeconds);
+        captureExecutor.init();
+    }
+
+    private void holdSlot() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        futures.add(captureExecutor.submit(CaptureExecutor.Priority.INTERACTIVE, "holder", () -> {
+            started.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private void submit(CaptureExecutor.Priority priority, String name) {
+        futures.add(captureExecutor.submit(priority, name, () -> order.add(name)));
+    }
+
+    private void drain() throws Exception {
+        release.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,114 @@
+package com.dlocal.slackshot.service;
+
+import com.dlocal.slackshot.model.ImageBlob;
+import com.dlocal.slackshot.repository.ImageBlobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ImageStoreServiceTest {
+
+    @TempDir
+    Path root;
+
+    private final Map<String, ImageBlob> blobs = new ConcurrentHashMap<>();
+    private ImageStoreService imageStoreService;
+
+    @BeforeEach
+    void setUp() {
+        ImageBlobRepository repository = mock(ImageBlobRepository.class);
+        when(repository.findById(anyString())).thenAnswer(invocation -> Optional.ofNullable(blobs.get(invocation.<String>getArgument(0))));
+        when(repository.save(any(ImageBlob.class))).thenAnswer(invocation -> {
+            ImageBlob blob = invocation.getArgument(0);
+            blobs.put(blob.getHash(), blob);
+            return blob;
+        });
+        doAnswer(invocation -> blobs.remove(invocation.<ImageBlob>getArgument(0).getHash()))
+            .when(repository).delete(any(ImageBlob.class));
+
+        imageStoreService = new ImageStoreService();
+        ReflectionTestUtils.setField(imageStoreService, "imageBlobRepository", repository);
+        ReflectionTestUtils.setField(imageStoreService, "rootDir", root.toString());
+        imageStoreService.init();
+    }
+
+    @Test
+    void concurrentStoresOfSameBytesShareOneFile() throws Exception {
+        byte[] image = "same image".getBytes(StandardCharsets.UTF_8);
+        List<ImageStoreService.StoredImage> stored = runConcurrently(32, i -> imageStoreService.store(image));
+
+        String hash = stored.get(0).getHash();
+        assertThat(stored).allSatisfy(s -> assertThat(s.getHash()).isEqualTo(hash));
+        assertThat(blobs.get(hash).getRefCount()).isEqualTo(32);
+        assertThat(imageStoreService.read(hash)).isEqualTo(image);
+
+        runConcurrently(31, i -> {
+            imageStoreService.release(hash);
+            return null;
+        });
+        assertThat(Files.exists(imageStoreService.resolve(hash))).isTrue();
+
+        imageStoreService.release(hash);
+        assertThat(blobs).doesNotContainKey(hash);
+        assertThat(Files.exists(imageStoreService.resolve(hash))).isFalse();
+    }
+
+    @Test
+    void concurrentStoreAndReleaseOfDifferentImages() throws Exception {
+        List<ImageStoreService.StoredImage> stored = runConcurrently(64,
+            i -> imageStoreService.store(("image " + i).getBytes(StandardCharsets.UTF_8)));
+        assertThat(blobs).hasSize(64);
+
+        runConcurrently(64, i -> {
+            imageStoreService.release(stored.get(i).getHash());
+            return null;
+        });
+        assertThat(blobs).isEmpty();
+        for (ImageStoreService.StoredImage image : stored) {
+            assertThat(Files.exists(imageStoreService.resolve(image.getHash()))).isFalse();
+        }
+    }
+
+    private <T> List<T> runConcurrently(int count, IndexedTask<T> task) throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int index = i;
+                futures.add(threads.submit(() -> task.run(index)));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    private interface IndexedTask<T> {
+        T run(int index) throws Exception;
+    }
+}
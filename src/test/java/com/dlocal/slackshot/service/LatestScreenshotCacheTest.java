@@ -0,0 +1,54 @@
+package com.dlocal.slackshot.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatestScreenshotCacheTest {
+
+    private static final int MB = 1024 * 1024;
+
+    private LatestScreenshotCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new LatestScreenshotCache();
+        ReflectionTestUtils.setField(cache, "maxEntries", 200);
+        ReflectionTestUtils.setField(cache, "maxBytesMb", 8L);
+        ReflectionTestUtils.setField(cache, "maxEntryBytesMb", 2L);
+    }
+
+    @Test
+    void imageOverTheEntryCapIsCachedWithoutBytes() {
+        cache.get("small-1", name -> screenshot(name, MB));
+        cache.get("small-2", name -> screenshot(name, MB));
+
+        LatestScreenshotCache.CachedScreenshot large = cache.get("large", name -> screenshot(name, 3 * MB));
+
+        assertThat(large.getBytes()).isNull();
+        assertThat(large.getEtag()).isEqualTo("\"large\"");
+        LatestScreenshotCache.CacheStats stats = cache.getStats();
+        assertThat(stats.getEntries()).isEqualTo(3);
+        assertThat(stats.getCachedBytes()).isEqualTo(2L * MB);
+        assertThat(stats.getEvictions()).isZero();
+        assertThat(cache.get("large", name -> { throw new AssertionError("loaded again"); }).getBytes()).isNull();
+    }
+
+    @Test
+    void entryCapNeverExceedsTheWholeBudget() {
+        ReflectionTestUtils.setField(cache, "maxEntryBytesMb", 64L);
+
+        assertThat(cache.fits(8L * MB)).isTrue();
+        assertThat(cache.fits(8L * MB + 1)).isFalse();
+        assertThat(cache.getStats().getMaxEntryBytes()).isEqualTo(8L * MB);
+    }
+
+    private static LatestScreenshotCache.CachedScreenshot screenshot(String name, int size) {
+        return new LatestScreenshotCache.CachedScreenshot(1L, name, "png", "\"" + name + "\"",
+            LocalDateTime.now(), name, new byte[size]);
+    }
+}
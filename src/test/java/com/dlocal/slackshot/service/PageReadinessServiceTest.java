@@ -0,0 +1,89 @@
+package com.dlocal.slackshot.service;
+
+import com.dlocal.slackshot.model.ReadinessOptions;
+import com.dlocal.slackshot.model.Site;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Drives the readiness waits against a stub page whose network and DOM state
+ * the test sets directly.
+ */
+class PageReadinessServiceTest {
+
+    private final Map<String, Object> pageState = new HashMap<>();
+    private PageReadinessService pageReadinessService;
+    private WebDriver driver;
+    private Site site;
+
+    @BeforeEach
+    void setUp() {
+        pageReadinessService = new PageReadinessService();
+        ReflectionTestUtils.setField(pageReadinessService, "defaultTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(pageReadinessService, "defaultQuietMs", 500L);
+        ReflectionTestUtils.setField(pageReadinessService, "pollIntervalMs", 20L);
+        ReflectionTestUtils.setField(pageReadinessService, "loginTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(pageReadinessService, "domSettleMs", 300L);
+
+        pageState.put("readyState", "complete");
+        pageState.put("inflight", 0);
+        pageState.put("networkQuietMs", 1000);
+        driver = mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class)
+            .defaultAnswer(invocation -> "executeScript".equals(invocation.getMethod().getName())
+                ? new HashMap<>(pageState) : null));
+
+        site = new Site();
+        site.setName("dashboard");
+    }
+
+    @Test
+    void autoDoesNotWaitOutTheBudgetForAPageThatKeepsRendering() {
+        // A dashboard re-rendering its panels: the DOM never goes quiet
+        pageState.put("domQuietMs", 0);
+
+        long start = System.nanoTime();
+        assertThat(pageReadinessService.awaitReady(site, driver)).isTrue();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(elapsedMs).isBetween(300L, 2000L);
+        PageReadinessService.WaitStats stats = pageReadinessService.getStats().get("dashboard");
+        assertThat(stats.getTimeouts()).isZero();
+        assertThat(stats.getDomSettleTimeouts()).isEqualTo(1);
+    }
+
+    @Test
+    void autoReturnsAtOnceWhenNetworkAndDomAreQuiet() {
+        pageState.put("domQuietMs", 1000);
+
+        assertThat(pageReadinessService.awaitReady(site, driver)).isTrue();
+
+        PageReadinessService.WaitStats stats = pageReadinessService.getStats().get("dashboard");
+        assertThat(stats.getMaxMillis()).isLessThan(300);
+        assertThat(stats.getDomSettleTimeouts()).isZero();
+    }
+
+    @Test
+    void busyNetworkRunsOutTheBudgetAndCountsATimeout() {
+        pageState.put("inflight", 2);
+        pageState.put("domQuietMs", 1000);
+        ReadinessOptions options = new ReadinessOptions();
+        options.setTimeoutMs(200L);
+        site.setReadiness(options);
+
+        assertThat(pageReadinessService.awaitReady(site, driver)).isFalse();
+
+        PageReadinessService.WaitStats stats = pageReadinessService.getStats().get("dashboard");
+        assertThat(stats.getTimeouts()).isEqualTo(1);
+        assertThat(stats.getDomSettleTimeouts()).isZero();
+    }
+}
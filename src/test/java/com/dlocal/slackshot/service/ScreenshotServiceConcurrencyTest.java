@@ -0,0 +1,290 @@
+package com.dlocal.slackshot.service;
+
+import com.codeborne.selenide.SelenideConfig;
+import com.dlocal.slackshot.model.Screenshot;
+import com.dlocal.slackshot.model.Site;
+import com.dlocal.slackshot.repository.ScreenshotRepository;
+import com.dlocal.slackshot.repository.SiteRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs many captures of different sites at once through a small pool of stub
+ * browsers, so drivers are constantly handed from one site to another, and
+ * checks that every capture only ever sees the page it opened itself and that
+ * callers sharing a capture in flight do not take a browser of their own.
+ */
+class ScreenshotServiceConcurrencyTest {
+
+    private static final int SITES = 8;
+    private static final int THREADS = 16;
+    private static final int CAPTURES_PER_THREAD = 25;
+
+    private WebDriverManager webDriverManager;
+    private CaptureCoordinator captureCoordinator;
+    private ExecutorService captureThreads;
+    private ScreenshotService screenshotService;
+    private final List<Site> sites = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        webDriverManager = new WebDriverManager();
+        ReflectionTestUtils.setField(webDriverManager, "driverFactory", new StubDriverFactory());
+        ReflectionTestUtils.setField(webDriverManager, "processMonitor", mock(ChromeProcessMonitor.class));
+        ReflectionTestUtils.setField(webDriverManager, "maxPoolSize", 4);
+        ReflectionTestUtils.setField(webDriverManager, "minPoolSize", 4);
+        ReflectionTestUtils.setField(webDriverManager, "adaptiveSizing", false);
+        ReflectionTestUtils.setField(webDriverManager, "timeoutSeconds", 30);
+        ReflectionTestUtils.setField(webDriverManager, "leaseTimeoutSeconds", 300);
+        ReflectionTestUtils.setField(webDriverManager, "reaperIntervalSeconds", 60);
+        ReflectionTestUtils.setField(webDriverManager, "configuredMinIdle", 0);
+        ReflectionTestUtils.setField(webDriverManager, "replenishIntervalSeconds", 60);
+        ReflectionTestUtils.setField(webDriverManager, "healthCheckIntervalSeconds", 60);
+        webDriverManager.init();
+
+        // The capture reads whatever page the driver it was given is showing
+        DevToolsCaptureService devToolsCaptureService = mock(DevToolsCaptureService.class);
+        when(devToolsCaptureService.capture(any(Site.class), any(WebDriver.class))).thenAnswer(invocation -> {
+            WebDriver driver = invocation.getArgument(1);
+            Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+            return new DevToolsCaptureService.CapturedImage(
+                driver.getCurrentUrl().getBytes(StandardCharsets.UTF_8), "png");
+        });
+
+        ImageStoreService imageStoreService = mock(ImageStoreService.class);
+        when(imageStoreService.store(any(byte[].class))).thenAnswer(invocation -> {
+            byte[] bytes = invocation.getArgument(0);
+            return new ImageStoreService.StoredImage(new String(bytes, StandardCharsets.UTF_8), bytes.length);
+        });
+
+        ScreenshotRepository screenshotRepository = mock(ScreenshotRepository.class);
+        when(screenshotRepository.save(any(Screenshot.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        captureCoordinator = new CaptureCoordinator();
+        ReflectionTestUtils.setField(captureCoordinator, "sharedWaitSeconds", 60L);
+
+        captureThreads = Executors.newCachedThreadPool();
+        CaptureExecutor captureExecutor = new CaptureExecutor();
+        ReflectionTestUtils.setField(captureExecutor, "webDriverManager", webDriverManager);
+        ReflectionTestUtils.setField(captureExecutor, "webDriverTaskExecutor", captureThreads);
+        ReflectionTestUtils.setField(captureExecutor, "scheduledHeadStartSeconds", 30L);
+        ReflectionTestUtils.setField(captureExecutor, "backfillHeadStartSeconds", 120L);
+        ReflectionTestUtils.setField(captureExecutor, "interactiveQueueCapacity", THREADS);
+        ReflectionTestUtils.setField(captureExecutor, "scheduledQueueCapacity", THREADS);
+        ReflectionTestUtils.setField(captureExecutor, "backfillQueueCapacity", THREADS);
+        ReflectionTestUtils.setField(captureExecutor, "maxRetryAfterSeconds", 300L);
+        captureExecutor.init();
+        ReflectionTestUtils.setField(captureCoordinator, "captureExecutor", captureExecutor);
+
+        RequestBlockingService requestBlockingService = mock(RequestBlockingService.class);
+
+        screenshotService = new ScreenshotService();
+        ReflectionTestUtils.setField(screenshotService, "webDriverManager", webDriverManager);
+        ReflectionTestUtils.setField(screenshotService, "selenideConfig", new SelenideConfig());
+        ReflectionTestUtils.setField(screenshotService, "sessionCacheService", mock(SessionCacheService.class));
+        ReflectionTestUtils.setField(screenshotService, "pageReadinessService", mock(PageReadinessService.class));
+        ReflectionTestUtils.setField(screenshotService, "requestBlockingService", requestBlockingService);
+        ReflectionTestUtils.setField(screenshotService, "devToolsCaptureService", devToolsCaptureService);
+        ReflectionTestUtils.setField(screenshotService, "imageStoreService", imageStoreService);
+        ReflectionTestUtils.setField(screenshotService, "screenshotRepository", screenshotRepository);
+        ReflectionTestUtils.setField(screenshotService, "siteRepository", mock(SiteRepository.class));
+        ReflectionTestUtils.setField(screenshotService, "latestScreenshotCache", mock(LatestScreenshotCache.class));
+        ReflectionTestUtils.setField(screenshotService, "captureCoordinator", captureCoordinator);
+        ReflectionTestUtils.setField(screenshotService, "captureExecutor", captureExecutor);
+
+        for (int i = 0; i < SITES; i++) {
+            Site site = new Site();
+            site.setId((long) i);
+            site.setName("site-" + i);
+            site.setUrl("http://site-" + i + ".test/dashboard");
+            site.setLoginType(Site.LoginType.NONE);
+            sites.add(site);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        captureThreads.shutdownNow();
+        webDriverManager.shutdown();
+    }
+
+    @Test
+    void parallelCapturesNeverSeeAnotherCapturesPage() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        List<String> mismatches = Collections.synchronizedList(new ArrayList<>());
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(threads.submit(() -> {
+                    for (int i = 0; i < CAPTURES_PER_THREAD; i++) {
+                        Site site = sites.get(ThreadLocalRandom.current().nextInt(SITES));
+                        Screenshot screenshot = screenshotService.takeScreenshot(site);
+                        if (!site.getUrl().equals(screenshot.getImageHash())) {
+                            mismatches.add(site.getName() + " captured " + screenshot.getImageHash());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+
+        assertThat(mismatches).isEmpty();
+        // Callers joining a capture already in flight never took a browser
+        CaptureCoordinator.CaptureStats captures = captureCoordinator.getStats();
+        assertThat(captures.getCaptures() + captures.getDuplicatesSaved()).isEqualTo(THREADS * CAPTURES_PER_THREAD);
+        WebDriverManager.PoolStats stats = webDriverManager.getPoolStats();
+        assertThat(stats.getTotalAcquisitions()).isEqualTo(captures.getCaptures());
+        assertThat(stats.getTotalDrivers()).isLessThanOrEqualTo(4);
+    }
+
+    private static class StubDriverFactory extends ChromeDriverFactory {
+
+        @Override
+        public PooledDriver create(long id) {
+            return new PooledDriver(id, new PageDriver(), Instant.now(), new BrowserInstance(null, null, null), null);
+        }
+
+        @Override
+        public void destroy(PooledDriver pooled) {
+        }
+
+        @Override
+        public PoolMode getMode() {
+            return PoolMode.PROCESS;
+        }
+    }
+
+    /**
+     * A browser with one tab that only remembers which page it is showing.
+     */
+    private static class PageDriver implements WebDriver, JavascriptExecutor {
+
+        private volatile String currentUrl = "about:blank";
+        private final Options options = mock(Options.class, RETURNS_DEEP_STUBS);
+
+        @Override
+        public void get(String url) {
+            currentUrl = url;
+        }
+
+        @Override
+        public String getCurrentUrl() {
+            return currentUrl;
+        }
+
+        @Override
+        public String getTitle() {
+            return currentUrl;
+        }
+
+        @Override
+        public List<WebElement> findElements(By by) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public WebElement findElement(By by) {
+            throw new org.openqa.selenium.NoSuchElementException(by.toString());
+        }
+
+        @Override
+        public String getPageSource() {
+            return "<html></html>";
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void quit() {
+        }
+
+        @Override
+        public Set<String> getWindowHandles() {
+            return Set.of("tab");
+        }
+
+        @Override
+        public String getWindowHandle() {
+            return "tab";
+        }
+
+        @Override
+        public TargetLocator switchTo() {
+            return mock(TargetLocator.class);
+        }
+
+        @Override
+        public Navigation navigate() {
+            return new Navigation() {
+                @Override
+                public void back() {
+                }
+
+                @Override
+                public void forward() {
+                }
+
+                @Override
+                public void to(String url) {
+                    currentUrl = url;
+                }
+
+                @Override
+                public void to(URL url) {
+                    currentUrl = url.toString();
+                }
+
+                @Override
+                public void refresh() {
+                }
+            };
+        }
+
+        @Override
+        public Options manage() {
+            return options;
+        }
+
+        @Override
+        public Object executeScript(String script, Object... args) {
+            return null;
+        }
+
+        @Override
+        public Object executeAsyncScript(String script, Object... args) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.dlocal.slackshot.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SessionCipherTest {
+
+    private static final String COOKIES = "[{\"name\":\"SESSION\",\"value\":\"secret-token\",\"httpOnly\":true}]";
+
+    @Test
+    void roundTripsWithoutStoringPlaintext() {
+        SessionCipher cipher = cipher(key(1));
+
+        String sealed = cipher.encrypt(COOKIES, "site:1");
+
+        assertThat(sealed).doesNotContain("secret-token").isNotEqualTo(cipher.encrypt(COOKIES, "site:1"));
+        assertThat(cipher.decrypt(sealed, "site:1")).isEqualTo(COOKIES);
+        assertThat(cipher.encrypt(null, "site:1")).isNull();
+    }
+
+    @Test
+    void rejectsOtherKeyOtherSiteAndPlaintext() {
+        String sealed = cipher(key(1)).encrypt(COOKIES, "site:1");
+
+        assertThatThrownBy(() -> cipher(key(2)).decrypt(sealed, "site:1")).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> cipher(key(1)).decrypt(sealed, "site:2")).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> cipher(key(1)).decrypt(COOKIES, "site:1")).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void withoutConfiguredKeyUsesOneThatLastsUntilRestart() {
+        SessionCipher cipher = cipher("");
+        String sealed = cipher.encrypt(COOKIES, "site:1");
+
+        assertThat(cipher.decrypt(sealed, "site:1")).isEqualTo(COOKIES);
+        assertThatThrownBy(() -> cipher("").decrypt(sealed, "site:1")).isInstanceOf(RuntimeException.class);
+    }
+
+    private static SessionCipher cipher(String key) {
+        SessionCipher cipher = new SessionCipher();
+        ReflectionTestUtils.setField(cipher, "configuredKey", key);
+        cipher.init();
+        return cipher;
+    }
+
+    private static String key(int fill) {
+        byte[] bytes = new byte[32];
+        Arrays.fill(bytes, (byte) fill);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,178 @@
+package com.dlocal.slackshot.service;
+
+import com.dlocal.slackshot.model.ScreenshotTask;
+import com.dlocal.slackshot.model.SlackTask;
+import com.dlocal.slackshot.repository.ScreenshotTaskRepository;
+import com.dlocal.slackshot.repository.SlackTaskRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TaskSchedulerServiceTest {
+
+    private final ScreenshotTaskRepository screenshotTaskRepository = mock(ScreenshotTaskRepository.class);
+    private final SlackTaskRepository slackTaskRepository = mock(SlackTaskRepository.class);
+    private final ScreenshotService screenshotService = mock(ScreenshotService.class);
+    private final SlackService slackService = mock(SlackService.class);
+    private TaskSchedulerService taskSchedulerService;
+
+    @BeforeEach
+    void setUp() {
+        when(screenshotTaskRepository.findByActiveTrue()).thenReturn(List.of());
+        when(slackTaskRepository.findByActiveTrue()).thenReturn(List.of());
+        when(screenshotTaskRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(slackTaskRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(screenshotService.runScheduledTask(anyLong())).thenReturn(CompletableFuture.completedFuture(null));
+
+        taskSchedulerService = new TaskSchedulerService();
+        ReflectionTestUtils.setField(taskSchedulerService, "screenshotTaskRepository", screenshotTaskRepository);
+        ReflectionTestUtils.setField(taskSchedulerService, "slackTaskRepository", slackTaskRepository);
+        ReflectionTestUtils.setField(taskSchedulerService, "screenshotService", screenshotService);
+        ReflectionTestUtils.setField(taskSchedulerService, "slackService", slackService);
+        ReflectionTestUtils.setField(taskSchedulerService, "dispatchThreads", 2);
+        ReflectionTestUtils.setField(taskSchedulerService, "retrySeconds", 1L);
+        taskSchedulerService.init();
+        taskSchedulerService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        taskSchedulerService.shutdown();
+    }
+
+    @Test
+    void reschedulingSupersedesTheEarlierEntry() throws Exception {
+        taskSchedulerService.schedule(TaskSchedulerService.TaskType.SCREENSHOT, 1L, inMillis(300));
+        taskSchedulerService.schedule(TaskSchedulerService.TaskType.SCREENSHOT, 1L, inMillis(50));
+
+        awaitUntil(() -> taskSchedulerService.getStats().getSuperseded() == 1);
+        verify(screenshotService, times(1)).runScheduledTask(1L);
+        assertThat(fired(TaskSchedulerService.TaskType.SCREENSHOT)).isEqualTo(1);
+        assertThat(taskSchedulerService.getStats().getPending()).isZero();
+    }
+
+    @Test
+    void cancelledTaskDoesNotFire() throws Exception {
+        taskSchedulerService.schedule(TaskSchedulerService.TaskType.SLACK, 2L, inMillis(50));
+        taskSchedulerService.cancel(TaskSchedulerService.TaskType.SLACK, 2L);
+
+        ScreenshotTask inactive = screenshotTask(3L, inMillis(50));
+        taskSchedulerService.schedule(TaskSchedulerService.TaskType.SCREENSHOT, 3L, inMillis(50));
+        inactive.setActive(false);
+        taskSchedulerService.schedule(inactive);
+
+        awaitUntil(() -> taskSchedulerService.getStats().getSuperseded() == 2);
+        verify(slackService, never()).runScheduledTask(anyLong());
+        verify(screenshotService, never()).runScheduledTask(anyLong());
+        assertThat(taskSchedulerService.getStats().getPending()).isZero();
+    }
+
+    @Test
+    void firedTaskIsPutBackAtItsNextTime() throws Exception {
+        SlackTask task = new SlackTask();
+        task.setId(4L);
+        task.setActive(true);
+        task.setScheduledTime(LocalDateTime.now().plusHours(1));
+        when(slackTaskRepository.findById(4L)).thenReturn(Optional.of(task));
+
+        taskSchedulerService.schedule(TaskSchedulerService.TaskType.SLACK, 4L, inMillis(50));
+
+        awaitUntil(() -> fired(TaskSchedulerService.TaskType.SLACK) == 1
+            && taskSchedulerService.getStats().getPending() == 1);
+        verify(slackService, times(1)).runScheduledTask(4L);
+    }
+
+    @Test
+    void taskThatDidNotMoveForwardIsRetriedAfterRetrySeconds() throws Exception {
+        // A failed run leaves the stored time where it was
+        when(screenshotService.runScheduledTask(5L))
+            .thenReturn(CompletableFuture.failedFuture(new RuntimeException("capture failed")));
+        ScreenshotTask task = screenshotTask(5L, LocalDateTime.now().minusMinutes(1));
+        when(screenshotTaskRepository.findById(5L)).thenReturn(Optional.of(task));
+
+        long scheduledAt = System.nanoTime();
+        taskSchedulerService.schedule(task);
+
+        awaitUntil(() -> fired(TaskSchedulerService.TaskType.SCREENSHOT) >= 2);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scheduledAt)).isGreaterThanOrEqualTo(900);
+        verify(screenshotService, atLeast(2)).runScheduledTask(5L);
+    }
+
+    @Test
+    void taskDeactivatedWhileRunningIsNotPutBack() throws Exception {
+        SlackTask task = new SlackTask();
+        task.setId(6L);
+        task.setActive(false);
+        task.setScheduledTime(LocalDateTime.now().plusHours(1));
+        when(slackTaskRepository.findById(6L)).thenReturn(Optional.of(task));
+
+        taskSchedulerService.schedule(TaskSchedulerService.TaskType.SLACK, 6L, inMillis(50));
+
+        awaitUntil(() -> fired(TaskSchedulerService.TaskType.SLACK) == 1);
+        verify(slackTaskRepository, timeout(5000)).findById(6L);
+        assertThat(taskSchedulerService.getStats().getPending()).isZero();
+    }
+
+    @Test
+    void changedTaskThatIsDueIsQueuedOneIntervalOut() throws Exception {
+        // Its stored time is past because it is running right now
+        SlackTask task = new SlackTask();
+        task.setId(7L);
+        task.setActive(true);
+        task.setScheduledTime(LocalDateTime.now().minusSeconds(1));
+        task.setTaskInterval(Duration.ofMinutes(10));
+
+        taskSchedulerService.scheduleChanged(task);
+
+        Thread.sleep(200);
+        verify(slackService, never()).runScheduledTask(anyLong());
+        assertThat(taskSchedulerService.getStats().getPending()).isEqualTo(1);
+
+        task.setActive(false);
+        taskSchedulerService.scheduleChanged(task);
+        assertThat(taskSchedulerService.getStats().getPending()).isZero();
+    }
+
+    private ScreenshotTask screenshotTask(Long id, LocalDateTime scheduledTime) {
+        ScreenshotTask task = new ScreenshotTask(null, scheduledTime, Duration.ofMinutes(5), true, LocalDateTime.now());
+        task.setId(id);
+        return task;
+    }
+
+    private long fired(TaskSchedulerService.TaskType type) {
+        return taskSchedulerService.getStats().getTypes().get(type.name()).getFired();
+    }
+
+    private static LocalDateTime inMillis(long millis) {
+        return LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met in time");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
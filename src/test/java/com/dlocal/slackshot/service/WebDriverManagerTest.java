@@ -0,0 +1,202 @@
+package com.dlocal.slackshot.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+class WebDriverManagerTest {
+
+    private StubDriverFactory driverFactory;
+    private WebDriverManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new WebDriverManager();
+        driverFactory = new StubDriverFactory();
+        ReflectionTestUtils.setField(manager, "driverFactory", driverFactory);
+        ReflectionTestUtils.setField(manager, "processMonitor", mock(ChromeProcessMonitor.class));
+        ReflectionTestUtils.setField(manager, "maxPoolSize", 1);
+        ReflectionTestUtils.setField(manager, "minPoolSize", 1);
+        ReflectionTestUtils.setField(manager, "adaptiveSizing", false);
+        ReflectionTestUtils.setField(manager, "timeoutSeconds", 10);
+        ReflectionTestUtils.setField(manager, "leaseTimeoutSeconds", 300);
+        ReflectionTestUtils.setField(manager, "reaperIntervalSeconds", 60);
+        ReflectionTestUtils.setField(manager, "configuredMinIdle", 0);
+        ReflectionTestUtils.setField(manager, "replenishIntervalSeconds", 60);
+        ReflectionTestUtils.setField(manager, "healthCheckIntervalSeconds", 60);
+        manager.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.shutdown();
+    }
+
+    @Test
+    void waitersAreHandedTheDriverInArrivalOrder() throws Exception {
+        WebDriverLease holder = manager.acquire();
+
+        int waiters = 4;
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        long[] acquiredAt = new long[waiters];
+        long[] releasedAt = new long[waiters];
+        CountDownLatch done = new CountDownLatch(waiters);
+        for (int i = 0; i < waiters; i++) {
+            int index = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    WebDriverLease lease = manager.acquire();
+                    try {
+                        acquiredAt[index] = System.nanoTime();
+                        order.add(index);
+                        Thread.sleep(20);
+                        releasedAt[index] = System.nanoTime();
+                    } finally {
+                        lease.close();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "waiter-" + i);
+            thread.start();
+            awaitQueueLength(i + 1);
+        }
+
+        long holderReleasedAt = System.nanoTime();
+        holder.close();
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).containsExactly(0, 1, 2, 3);
+
+        // Each release hands the slot straight to the next waiter
+        assertThat(TimeUnit.NANOSECONDS.toMillis(acquiredAt[0] - holderReleasedAt)).isLessThan(1000);
+        for (int i = 1; i < waiters; i++) {
+            assertThat(TimeUnit.NANOSECONDS.toMillis(acquiredAt[i] - releasedAt[i - 1])).isLessThan(1000);
+        }
+
+        WebDriverManager.PoolStats stats = manager.getPoolStats();
+        assertThat(stats.getTotalAcquisitions()).isEqualTo(waiters + 1);
+        assertThat(stats.getMaxWaitMillis()).isGreaterThan(0);
+        assertThat(stats.getTotalDrivers()).isEqualTo(1);
+    }
+
+    @Test
+    void lateCallerDoesNotOvertakeQueuedWaiter() throws Exception {
+        WebDriverLease holder = manager.acquire();
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        Thread waiter = new Thread(() -> {
+            manager.acquire().close();
+            order.add("waiter");
+        });
+        waiter.start();
+        awaitQueueLength(1);
+
+        // Release and immediately try to take the slot again from this thread
+        holder.close();
+        WebDriverLease late = manager.acquire();
+        order.add("late");
+        late.close();
+
+        waiter.join(5000);
+        assertThat(order).containsExactly("waiter", "late");
+    }
+
+    @Test
+    void reassigningAffinityRemovesSessionScript() {
+        PooledDriver pooled;
+        try (WebDriverLease lease = manager.acquire("site-a")) {
+            pooled = lease.pooledDriver();
+            pooled.setSessionScriptId("script-1");
+        }
+
+        try (WebDriverLease lease = manager.acquire("site-b")) {
+            assertThat(lease.pooledDriver()).isSameAs(pooled);
+            assertThat(lease.isSessionReused()).isFalse();
+        }
+
+        HasCdp cdp = (HasCdp) pooled.getDriver();
+        verify(cdp).executeCdpCommand("Page.removeScriptToEvaluateOnNewDocument", Map.of("identifier", "script-1"));
+        verify(cdp).executeCdpCommand("Network.clearBrowserCookies", Map.of());
+        assertThat(pooled.getSessionScriptId()).isNull();
+    }
+
+    @Test
+    void waiterTakesSlotFreedByRetiredDriver() throws Exception {
+        // Every return retires the driver, and nothing keeps an idle one ready
+        ReflectionTestUtils.setField(manager, "maxUses", 1);
+        driverFactory.destroyDelayMillis = 300;
+        WebDriverLease holder = manager.acquire();
+
+        long[] waitedMillis = new long[1];
+        Thread waiter = new Thread(() -> {
+            long start = System.nanoTime();
+            manager.acquire().close();
+            waitedMillis[0] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        });
+        waiter.start();
+        awaitQueueLength(1);
+
+        // The permit comes back at once, the driver slot only once Chrome has quit
+        holder.close();
+        waiter.join(5000);
+
+        assertThat(waiter.isAlive()).isFalse();
+        assertThat(waitedMillis[0]).isBetween(1L, 2000L);
+        assertThat(manager.getPoolStats().getTotalAcquisitions()).isEqualTo(2);
+    }
+
+    private void awaitQueueLength(int length) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (manager.getWaitingRequests() < length) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Waiter never queued");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private static class StubDriverFactory extends ChromeDriverFactory {
+
+        private volatile long destroyDelayMillis;
+
+        @Override
+        public PooledDriver create(long id) {
+            WebDriver driver = mock(WebDriver.class, withSettings()
+                .extraInterfaces(HasCdp.class).defaultAnswer(RETURNS_DEEP_STUBS));
+            return new PooledDriver(id, driver, Instant.now(), new BrowserInstance(null, null, null), null);
+        }
+
+        @Override
+        public void destroy(PooledDriver pooled) {
+            try {
+                Thread.sleep(destroyDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public PoolMode getMode() {
+            return PoolMode.PROCESS;
+        }
+    }
+}